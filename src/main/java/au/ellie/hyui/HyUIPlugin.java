@@ -1,6 +1,7 @@
 package au.ellie.hyui;
 
 import au.ellie.hyui.commands.*;
+import au.ellie.hyui.html.TemplateWarmup;
 import com.hypixel.hytale.component.Ref;
 import com.hypixel.hytale.component.Store;
 import com.hypixel.hytale.server.core.event.events.player.PlayerReadyEvent;
@@ -32,6 +33,9 @@ public class HyUIPlugin extends JavaPlugin {
 
     @Override
     protected void setup() {
+        if (TemplateWarmup.ENABLED) {
+            TemplateWarmup.warmUp(HyUIPlugin.class);
+        }
         if (ADD_CMDS) {
             instance.logFinest("Setting up plugin " + this.getName());
             this.getCommandRegistry().registerCommand(new HyUITestGuiCommand());
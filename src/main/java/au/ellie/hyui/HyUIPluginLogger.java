@@ -2,17 +2,94 @@ package au.ellie.hyui;
 
 import com.hypixel.hytale.logger.HytaleLogger;
 
+import java.util.function.Supplier;
+
 public class HyUIPluginLogger {
-    
+
     private final HytaleLogger internalLogger = HytaleLogger.forEnclosingClass();
-    
+
     public static final boolean IS_DEV = "true".equals(System.getenv("HYUI_DEV"));
 
     public HyUIPluginLogger() {
-        
+
+    }
+
+    /**
+     * @return true if finest messages are logged, so building them is worth it.
+     */
+    public boolean isFinestEnabled() {
+        return internalLogger.atFinest().isEnabled();
     }
-    
+
     public void logFinest(String message) {
         internalLogger.atFinest().log(message);
     }
+
+    /**
+     * Logs a message that is only built when finest logging is enabled.
+     *
+     * @param message Builds the message.
+     */
+    public void logFinest(Supplier<String> message) {
+        if (isFinestEnabled()) {
+            internalLogger.atFinest().log(message.get());
+        }
+    }
+
+    /**
+     * Logs a {@link String#format} message that is only formatted when finest logging is enabled.
+     * Use {@code %s} for each argument.
+     */
+    public void logFinest(String format, Object arg) {
+        if (isFinestEnabled()) {
+            internalLogger.atFinest().log(String.format(format, arg));
+        }
+    }
+
+    public void logFinest(String format, Object arg1, Object arg2) {
+        if (isFinestEnabled()) {
+            internalLogger.atFinest().log(String.format(format, arg1, arg2));
+        }
+    }
+
+    public void logFinest(String format, Object arg1, Object arg2, Object arg3) {
+        if (isFinestEnabled()) {
+            internalLogger.atFinest().log(String.format(format, arg1, arg2, arg3));
+        }
+    }
+
+    public void logFinest(String format, Object arg1, Object arg2, Object arg3, Object... rest) {
+        if (isFinestEnabled()) {
+            Object[] args = new Object[rest.length + 3];
+            args[0] = arg1;
+            args[1] = arg2;
+            args[2] = arg3;
+            System.arraycopy(rest, 0, args, 3, rest.length);
+            internalLogger.atFinest().log(String.format(format, args));
+        }
+    }
+
+    /**
+     * Logs a {@link String#format} message at info level. Use {@code %s} for each argument.
+     */
+    public void logInfo(String format, Object... args) {
+        internalLogger.atInfo().log(args.length == 0 ? format : String.format(format, args));
+    }
+
+    /**
+     * Logs a {@link String#format} warning. Use {@code %s} for each argument.
+     */
+    public void logWarning(String format, Object... args) {
+        internalLogger.atWarning().log(args.length == 0 ? format : String.format(format, args));
+    }
+
+    /**
+     * Logs a failure with its stack trace.
+     *
+     * @param message The message.
+     * @param cause   The failure.
+     */
+    public void logSevere(String message, Throwable cause) {
+        internalLogger.atSevere().withCause(cause).log(message);
+    }
 }
@@ -87,7 +87,7 @@ public class DynamicImageAsset extends CommonAsset {
         this.data = data;
         this.slotIndex = slotIndex;
         this.playerUuid = normalizePlayerUuid(playerUuid);
-        HyUIPlugin.getLog().logFinest("Dynamic image slot allocated: " + slotIndex + " path=" + PATHS[slotIndex]);
+        HyUIPlugin.getLog().logFinest("Dynamic image slot allocated: %s path=%s", slotIndex, PATHS[slotIndex]);
     }
     
     public static CommonAsset empty() {
@@ -140,7 +140,7 @@ public class DynamicImageAsset extends CommonAsset {
             for (int i = usedSlots.length - 1; i >= 0; i--) {
                 if (!usedSlots[i]) {
                     usedSlots[i] = true;
-                    HyUIPlugin.getLog().logFinest("Claimed dynamic image slot: " + i);
+                    HyUIPlugin.getLog().logFinest("Claimed dynamic image slot: %s", i);
                     return i;
                 }
             }
@@ -155,7 +155,7 @@ public class DynamicImageAsset extends CommonAsset {
                 return;
             }
             usedSlots[slotIndex] = false;
-            HyUIPlugin.getLog().logFinest("Released dynamic image slot: " + slotIndex);
+            HyUIPlugin.getLog().logFinest("Released dynamic image slot: %s", slotIndex);
         }
     }
 
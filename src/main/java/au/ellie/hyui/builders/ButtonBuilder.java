@@ -298,29 +298,29 @@ public class ButtonBuilder extends UIElementBuilder<ButtonBuilder> implements
         applyBackground(commands, selector);
 
         if (text != null && isTextButtonElement()) {
-            HyUIPlugin.getLog().logFinest("Setting Text: " + text + " for " + selector);
+            HyUIPlugin.getLog().logFinest("Setting Text: %s for %s", text, selector);
             commands.set(selector + ".Text", text);
         }
 
         if (disabled != null && !isBackButton()) {
-            HyUIPlugin.getLog().logFinest("Setting Disabled: " + disabled + " for " + selector);
+            HyUIPlugin.getLog().logFinest("Setting Disabled: %s for %s", disabled, selector);
             commands.set(selector + ".Disabled", disabled);
         }
 
         if (overscroll != null && isTextButtonElement()) {
-            HyUIPlugin.getLog().logFinest("Setting Overscroll: " + overscroll + " for " + selector);
+            HyUIPlugin.getLog().logFinest("Setting Overscroll: %s for %s", overscroll, selector);
             commands.set(selector + ".Overscroll", overscroll);
         }
 
         if (hyUIStyle == null && style != null && !isBackButton()) {
-            HyUIPlugin.getLog().logFinest("Setting Style: " + style + " for " + selector);
+            HyUIPlugin.getLog().logFinest("Setting Style: %s for %s", style, selector);
             commands.set(selector + ".Style", style);
         }
 
         listeners.forEach(listener -> {
             if (listener.type() == CustomUIEventBindingType.Activating) {
                 String eventId = getEffectiveId();
-                HyUIPlugin.getLog().logFinest("Adding Activating event binding: " + eventId + " for " + selector);
+                HyUIPlugin.getLog().logFinest("Adding Activating event binding: %s for %s", eventId, selector);
                 events.addEventBinding(CustomUIEventBindingType.Activating, selector, 
                         EventData.of("Action", UIEventActions.BUTTON_CLICKED)
                             .append("Target", eventId), 
@@ -0,0 +1,226 @@
+package au.ellie.hyui.builders;
+
+import au.ellie.hyui.HyUIPluginLogger;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A bounded journal of the UI commands an interface sent, with totals for every build.
+ * <p>
+ * Entries are kept in a ring buffer: once it is full the oldest entries are overwritten, so the journal
+ * never grows no matter how often an interface is refreshed. The totals are counted for every command,
+ * including the ones that were overwritten, and can be scraped to find interfaces that send too much.
+ * </p>
+ * <p>
+ * Entries keep a short preview of each value instead of the value itself, so the journal never holds on to
+ * documents, messages or slot lists the interface may still change.
+ * </p>
+ * Recording is on in dev mode, or when the {@code HYUI_METRICS=true} environment variable is set.
+ */
+public final class CommandJournal {
+    public static final boolean METRICS_ENABLED = "true".equals(System.getenv("HYUI_METRICS"));
+    public static final int DEFAULT_CAPACITY = 512;
+    static final int PREVIEW_LENGTH = 120;
+
+    public enum Op {
+        SET, SET_OBJECT, APPEND, APPEND_INLINE, REMOVE
+    }
+
+    public enum ValueKind {
+        NONE, STRING, BOOLEAN, INT, FLOAT, DOUBLE, MESSAGE, VALUE, OBJECT, DOCUMENT
+    }
+
+    /**
+     * A journaled command.
+     *
+     * @param op       The command.
+     * @param selector The selector or property path it targets.
+     * @param kind     The kind of value it carries.
+     * @param preview  The value as text, cut to {@value #PREVIEW_LENGTH} characters, or null if there is none.
+     * @param size     The approximate encoded size, in characters of selector and payload.
+     */
+    public record Entry(Op op, String selector, ValueKind kind, String preview, int size) {
+        @Override
+        public String toString() {
+            return switch (op) {
+                case SET -> "set(" + selector + ", " + preview + ")";
+                case SET_OBJECT -> "setObject(" + selector + ", " + preview + ")";
+                case APPEND -> selector == null ? "append(" + preview + ")" : "append(" + selector + ", " + preview + ")";
+                case APPEND_INLINE -> "appendInline(" + selector + ", " + preview + ")";
+                case REMOVE -> "remove(" + selector + ")";
+            };
+        }
+    }
+
+    /**
+     * The totals of one build.
+     *
+     * @param commands        Commands sent.
+     * @param bytes           Approximate encoded size of those commands.
+     * @param elementsTouched Distinct elements the commands targeted.
+     * @param dropped         Property sets that were built but not sent, because they repeated the last value.
+     */
+    public record BuildStats(int commands, long bytes, int elementsTouched, int dropped) {
+        public static final BuildStats EMPTY = new BuildStats(0, 0, 0, 0);
+    }
+
+    private final Op[] ops;
+    private final String[] selectors;
+    private final ValueKind[] kinds;
+    private final String[] previews;
+    private final int[] sizes;
+    // Index of the next slot to write, and how many slots hold entries.
+    private int head;
+    private int count;
+    // Entries written since the journal was created, and the range of the last build in that count.
+    private long written;
+    private long buildStart;
+    private long lastBuildStart;
+    private long lastBuildEnd;
+
+    private int buildCommands;
+    private long buildBytes;
+    private final Set<String> buildElements = new HashSet<>();
+    private BuildStats lastBuild = BuildStats.EMPTY;
+    private long totalBuilds;
+    private long totalCommands;
+    private long totalBytes;
+    private long totalDropped;
+
+    public CommandJournal() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public CommandJournal(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Journal capacity must be positive: " + capacity);
+        }
+        this.ops = new Op[capacity];
+        this.selectors = new String[capacity];
+        this.kinds = new ValueKind[capacity];
+        this.previews = new String[capacity];
+        this.sizes = new int[capacity];
+    }
+
+    /**
+     * @return true if builds should be journaled.
+     */
+    public static boolean isRecording() {
+        return HyUIPluginLogger.IS_DEV || METRICS_ENABLED;
+    }
+
+    /**
+     * @return The value as journaled, cut to {@value #PREVIEW_LENGTH} characters.
+     */
+    static String preview(Object value) {
+        if (value == null) {
+            return null;
+        }
+        String text = String.valueOf(value);
+        return text.length() <= PREVIEW_LENGTH ? text : text.substring(0, PREVIEW_LENGTH) + "...";
+    }
+
+    synchronized void record(Op op, String selector, ValueKind kind, String preview, int size) {
+        ops[head] = op;
+        selectors[head] = selector;
+        kinds[head] = kind;
+        previews[head] = preview;
+        sizes[head] = size;
+        head = (head + 1) % ops.length;
+        if (count < ops.length) {
+            count++;
+        }
+        written++;
+
+        buildCommands++;
+        buildBytes += size;
+        if (selector != null) {
+            int property = op == Op.SET || op == Op.SET_OBJECT ? selector.indexOf('.') : -1;
+            buildElements.add(property < 0 ? selector : selector.substring(0, property));
+        }
+    }
+
+    /**
+     * Starts counting a new build.
+     */
+    public synchronized void beginBuild() {
+        buildStart = written;
+        buildCommands = 0;
+        buildBytes = 0;
+        buildElements.clear();
+    }
+
+    /**
+     * Ends the current build and adds it to the totals.
+     *
+     * @param dropped Commands the build made that were not sent.
+     * @return The totals of the build.
+     */
+    public synchronized BuildStats endBuild(int dropped) {
+        lastBuild = new BuildStats(buildCommands, buildBytes, buildElements.size(), dropped);
+        lastBuildStart = buildStart;
+        lastBuildEnd = written;
+        buildElements.clear();
+        totalBuilds++;
+        totalCommands += buildCommands;
+        totalBytes += buildBytes;
+        totalDropped += dropped;
+        return lastBuild;
+    }
+
+    /**
+     * @return The entries still held, oldest first.
+     */
+    public synchronized List<Entry> getEntries() {
+        return entries(written - count, written);
+    }
+
+    /**
+     * @return The entries of the last finished build still held, oldest first. A build larger than the
+     * journal only keeps its last {@link #capacity()} entries.
+     */
+    public synchronized List<Entry> getLastBuildEntries() {
+        return entries(Math.max(lastBuildStart, written - count), lastBuildEnd);
+    }
+
+    private List<Entry> entries(long from, long to) {
+        List<Entry> entries = new ArrayList<>((int) Math.max(0, to - from));
+        for (long i = from; i < to; i++) {
+            // The entry written i-th sits (written - i) slots behind the head.
+            int slot = (int) Math.floorMod(head - (written - i), (long) ops.length);
+            entries.add(new Entry(ops[slot], selectors[slot], kinds[slot], previews[slot], sizes[slot]));
+        }
+        return entries;
+    }
+
+    public synchronized int size() {
+        return count;
+    }
+
+    public int capacity() {
+        return ops.length;
+    }
+
+    public synchronized BuildStats getLastBuild() {
+        return lastBuild;
+    }
+
+    public synchronized long getTotalBuilds() {
+        return totalBuilds;
+    }
+
+    public synchronized long getTotalCommands() {
+        return totalCommands;
+    }
+
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+
+    public synchronized long getTotalDropped() {
+        return totalDropped;
+    }
+}
@@ -200,24 +200,24 @@ public class CustomButtonBuilder extends UIElementBuilder<CustomButtonBuilder>
         }
 
         if (buttonType == ButtonType.TEXT_BUTTON && text != null) {
-            HyUIPlugin.getLog().logFinest("Setting Text: " + text + " for " + selector);
+            HyUIPlugin.getLog().logFinest("Setting Text: %s for %s", text, selector);
             commands.set(selector + ".Text", text);
         }
 
         if (disabled != null) {
-            HyUIPlugin.getLog().logFinest("Setting Disabled: " + disabled + " for " + selector);
+            HyUIPlugin.getLog().logFinest("Setting Disabled: %s for %s", disabled, selector);
             commands.set(selector + ".Disabled", disabled);
         }
 
         if (overscroll != null && buttonType == ButtonType.TEXT_BUTTON) {
-            HyUIPlugin.getLog().logFinest("Setting Overscroll: " + overscroll + " for " + selector);
+            HyUIPlugin.getLog().logFinest("Setting Overscroll: %s for %s", overscroll, selector);
             commands.set(selector + ".Overscroll", overscroll);
         }
 
         listeners.forEach(listener -> {
             if (listener.type() == CustomUIEventBindingType.Activating) {
                 String eventId = getEffectiveId();
-                HyUIPlugin.getLog().logFinest("Adding Activating event binding: " + eventId + " for " + selector);
+                HyUIPlugin.getLog().logFinest("Adding Activating event binding: %s for %s", eventId, selector);
                 events.addEventBinding(CustomUIEventBindingType.Activating, selector,
                         EventData.of("Action", UIEventActions.BUTTON_CLICKED)
                                 .append("Target", eventId),
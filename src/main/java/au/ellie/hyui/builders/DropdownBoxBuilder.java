@@ -127,27 +127,27 @@ public class DropdownBoxBuilder extends UIElementBuilder<DropdownBoxBuilder> {
         if (selector == null) return;
 
         if (value != null) {
-            HyUIPlugin.getLog().logFinest("Setting Value: " + value + " for " + selector);
+            HyUIPlugin.getLog().logFinest("Setting Value: %s for %s", value, selector);
             commands.set(selector + ".Value", value);
         }
         if (allowUnselection != null) {
-            HyUIPlugin.getLog().logFinest("Setting AllowUnselection: " + allowUnselection + " for " + selector);
+            HyUIPlugin.getLog().logFinest("Setting AllowUnselection: %s for %s", allowUnselection, selector);
             commands.set(selector + ".AllowUnselection", allowUnselection);
         }
         if (maxSelection != null) {
-            HyUIPlugin.getLog().logFinest("Setting MaxSelection: " + maxSelection + " for " + selector);
+            HyUIPlugin.getLog().logFinest("Setting MaxSelection: %s for %s", maxSelection, selector);
             commands.set(selector + ".MaxSelection", maxSelection);
         }
         if (entryHeight != null) {
-            HyUIPlugin.getLog().logFinest("Setting EntryHeight: " + entryHeight + " for " + selector);
+            HyUIPlugin.getLog().logFinest("Setting EntryHeight: %s for %s", entryHeight, selector);
             commands.set(selector + ".EntryHeight", entryHeight);
         }
         if (showLabel != null) {
-            HyUIPlugin.getLog().logFinest("Setting ShowLabel: " + showLabel + " for " + selector);
+            HyUIPlugin.getLog().logFinest("Setting ShowLabel: %s for %s", showLabel, selector);
             commands.set(selector + ".ShowLabel", showLabel);
         }
         if (!entries.isEmpty()) {
-            HyUIPlugin.getLog().logFinest("Setting Entries for " + selector);
+            HyUIPlugin.getLog().logFinest("Setting Entries for %s", selector);
             commands.set(selector + ".Entries", entries);
         }
         if (listeners.isEmpty()) {
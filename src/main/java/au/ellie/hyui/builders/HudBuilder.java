@@ -7,16 +7,14 @@ import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
 
 import javax.annotation.Nonnull;
 import java.util.List;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.function.Consumer;
 
 public class HudBuilder extends InterfaceBuilder<HudBuilder> {
     private final PlayerRef playerRef;
     private long refreshRateMs = 0;
+    private HyUIHud.RefreshMode refreshMode = HyUIHud.RefreshMode.DELTA;
     private Consumer<HyUIHud> refreshListener;
     private HyUIHud lastHud;
-    private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
 
     public HudBuilder(PlayerRef playerRef) {
         this.playerRef = playerRef;
@@ -40,6 +38,19 @@ public class HudBuilder extends InterfaceBuilder<HudBuilder> {
         return this;
     }
 
+    /**
+     * Sets how periodic refreshes are sent. {@link HyUIHud.RefreshMode#DELTA} (default) only sends property
+     * updates unless elements were added, removed or moved, {@link HyUIHud.RefreshMode#RERENDER} rebuilds the
+     * whole HUD every time.
+     *
+     * @param mode The refresh mode.
+     * @return The HudBuilder instance.
+     */
+    public HudBuilder withRefreshMode(HyUIHud.RefreshMode mode) {
+        this.refreshMode = mode;
+        return this;
+    }
+
     /**
      * Registers a callback to be triggered when the HUD is refreshed.
      *
@@ -99,10 +110,11 @@ public class HudBuilder extends InterfaceBuilder<HudBuilder> {
     public HyUIHud show(@Nonnull PlayerRef playerRefParam) {
         String name = "HYUIHUD" + System.currentTimeMillis();
         sendDynamicImageIfNeeded(playerRefParam);
-        this.lastHud = new HyUIHud(name, playerRefParam, uiFile, getTopLevelElements(), editCallbacks, templateHtml, templateProcessor, runtimeTemplateUpdatesEnabled);
+        this.lastHud = new HyUIHud(name, playerRefParam, uiFile, instantiateTopLevelElements(), editCallbacks, templateHtml, instantiateTemplateProcessor(), runtimeTemplateUpdatesEnabled);
         this.lastHud.setRefreshRateMs(refreshRateMs);
+        this.lastHud.setRefreshMode(refreshMode);
         this.lastHud.setRefreshListener(refreshListener);
-        HyUIPlugin.getLog().logFinest("Adding to a MultiHud: " + name);
+        HyUIPlugin.getLog().logFinest("Adding to a MultiHud: %s", name);
 
         // Show it.
         this.lastHud.add();
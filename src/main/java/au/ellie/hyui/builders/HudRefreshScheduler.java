@@ -0,0 +1,321 @@
+package au.ellie.hyui.builders;
+
+import au.ellie.hyui.HyUIPlugin;
+import au.ellie.hyui.utils.HudUpdateBatcher;
+import com.hypixel.hytale.server.core.universe.world.World;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drives the periodic refreshes of every {@link HyUIHud} from one thread.
+ * <p>
+ * Refresh deadlines are kept in a hashed timing wheel of {@value #WHEEL_SIZE} slots of {@value #TICK_MS} ms.
+ * The thread sleeps until the next occupied slot and is not woken at all while no HUD refreshes. HUDs that
+ * are due on the same tick are grouped by world and refreshed in three phases: their refresh listeners
+ * run on the world thread, their updates are built on a small build pool, and the updates are committed
+ * back on the world thread, merged per player by {@link HudUpdateBatcher}. Each HUD has a single writer at
+ * a time, see {@link HyUInterface#buildFromCommandBuilder}.
+ * </p>
+ * {@link #getStats()} reports how late refreshes were dispatched and how many ticks overran, since the
+ * single thread serialises the dispatch of every HUD on the server.
+ */
+public final class HudRefreshScheduler {
+    static final long TICK_MS = 50;
+    static final int WHEEL_SIZE = 512;
+    // HUDs refresh once shortly after they are added, as they did when each HUD polled on its own.
+    private static final long INITIAL_DELAY_MS = 100;
+    private static final int MAX_BUILD_THREADS = 4;
+
+    private static final HudRefreshScheduler INSTANCE = new HudRefreshScheduler();
+
+    /**
+     * Scheduler metrics since startup.
+     *
+     * @param scheduled    HUDs currently scheduled.
+     * @param dispatched   Refreshes dispatched.
+     * @param batches      World tasks used to dispatch them.
+     * @param maxLagMs     Largest delay between a deadline and its dispatch.
+     * @param meanLagMs    Mean delay between a deadline and its dispatch.
+     * @param overrunTicks Ticks that were reached more than a tick late, because dispatching or the
+     *                     machine held the thread up.
+     */
+    public record Stats(int scheduled, long dispatched, long batches, long maxLagMs, double meanLagMs, long overrunTicks) {}
+
+    /**
+     * A scheduled HUD. Cancelled tasks are dropped when the wheel reaches their slot.
+     */
+    static final class Task {
+        private final HyUIHud hud;
+        private long deadlineMs;
+        private long deadlineTick;
+        private volatile boolean cancelled;
+
+        private Task(HyUIHud hud) {
+            this.hud = hud;
+        }
+
+        void cancel() {
+            cancelled = true;
+        }
+
+        boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private final List<Task>[] slots = new List[WHEEL_SIZE];
+    private final BitSet occupied = new BitSet(WHEEL_SIZE);
+    private final long epochNanos = System.nanoTime();
+    private long currentTick;
+    private int size;
+    private Thread thread;
+
+    private long dispatched;
+    private long batches;
+    private long totalLagMs;
+    private long maxLagMs;
+    private long overrunTicks;
+
+    // Builds refreshes off the world threads, created with the first refresh.
+    private static final class BuildPool {
+        private static final AtomicInteger COUNT = new AtomicInteger();
+        static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(
+                Math.max(1, Math.min(MAX_BUILD_THREADS, Runtime.getRuntime().availableProcessors() / 2)),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "HyUI-HudBuild-" + COUNT.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    private HudRefreshScheduler() {
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            slots[i] = new ArrayList<>();
+        }
+    }
+
+    /**
+     * Schedules the periodic refresh of a HUD at its current refresh rate.
+     *
+     * @param hud The HUD.
+     * @return The task, cancel it to stop refreshing.
+     */
+    static Task schedule(HyUIHud hud) {
+        Task task = new Task(hud);
+        INSTANCE.add(task, INSTANCE.nowMs() + INITIAL_DELAY_MS);
+        return task;
+    }
+
+    /**
+     * @return The scheduler metrics.
+     */
+    public static Stats getStats() {
+        return INSTANCE.stats();
+    }
+
+    private synchronized Stats stats() {
+        return new Stats(size, dispatched, batches, maxLagMs,
+                dispatched == 0 ? 0 : (double) totalLagMs / dispatched, overrunTicks);
+    }
+
+    private long nowMs() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - epochNanos);
+    }
+
+    private synchronized void add(Task task, long deadlineMs) {
+        task.deadlineMs = deadlineMs;
+        // A tick that was already processed is never visited again, so late deadlines go in the next one.
+        task.deadlineTick = Math.max(deadlineMs / TICK_MS, currentTick + 1);
+        int slot = (int) (task.deadlineTick % WHEEL_SIZE);
+        slots[slot].add(task);
+        occupied.set(slot);
+        size++;
+        if (thread == null) {
+            thread = new Thread(this::run, "HyUI-HudRefresh");
+            thread.setDaemon(true);
+            thread.start();
+        }
+        notifyAll();
+    }
+
+    private void run() {
+        List<Task> due = new ArrayList<>();
+        while (true) {
+            long nowMs;
+            synchronized (this) {
+                long targetTick = nextOccupiedTick();
+                nowMs = nowMs();
+                while (targetTick < 0 || nowMs / TICK_MS < targetTick) {
+                    try {
+                        if (targetTick < 0) {
+                            wait();
+                        } else {
+                            wait(Math.max(1, targetTick * TICK_MS - nowMs));
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    targetTick = nextOccupiedTick();
+                    nowMs = nowMs();
+                }
+                long nowTick = nowMs / TICK_MS;
+                if (nowTick > targetTick + 1) {
+                    overrunTicks++;
+                }
+                collectDue(nowTick, due);
+                currentTick = nowTick;
+            }
+            dispatch(due, nowMs);
+            due.clear();
+        }
+    }
+
+    /**
+     * @return The tick of the next occupied slot after the current tick, or -1 if the wheel is empty.
+     * The slot may hold tasks for a later round, the wheel is then just visited early.
+     */
+    private long nextOccupiedTick() {
+        if (size == 0) {
+            return -1;
+        }
+        int from = (int) ((currentTick + 1) % WHEEL_SIZE);
+        int slot = occupied.nextSetBit(from);
+        if (slot < 0) {
+            slot = occupied.nextSetBit(0);
+        }
+        return currentTick + 1 + Math.floorMod(slot - from, WHEEL_SIZE);
+    }
+
+    /**
+     * Removes the tasks due by the given tick from every slot passed since the current tick.
+     */
+    private void collectDue(long nowTick, List<Task> due) {
+        long ticks = Math.min(nowTick - currentTick, WHEEL_SIZE);
+        int from = (int) ((currentTick + 1) % WHEEL_SIZE);
+        for (int slot = occupied.nextSetBit(0); slot >= 0; slot = occupied.nextSetBit(slot + 1)) {
+            if (Math.floorMod(slot - from, WHEEL_SIZE) >= ticks) {
+                continue;
+            }
+            List<Task> tasks = slots[slot];
+            for (int i = tasks.size() - 1; i >= 0; i--) {
+                Task task = tasks.get(i);
+                if (task.cancelled || task.deadlineTick <= nowTick) {
+                    tasks.set(i, tasks.get(tasks.size() - 1));
+                    tasks.remove(tasks.size() - 1);
+                    size--;
+                    if (!task.cancelled) {
+                        due.add(task);
+                    }
+                }
+            }
+            if (tasks.isEmpty()) {
+                occupied.clear(slot);
+            }
+        }
+    }
+
+    /**
+     * Builds the refreshes of one world on a build thread, then commits them together on the world thread.
+     */
+    private static void prepare(World world, List<HyUIHud> huds) {
+        List<HyUIHud.PreparedRefresh> prepared = new ArrayList<>(huds.size());
+        for (HyUIHud hud : huds) {
+            try {
+                prepared.add(hud.prepareScheduledRefresh());
+            } catch (RuntimeException e) {
+                HyUIPlugin.getLog().logSevere("HUD refresh failed for " + hud.name, e);
+                prepared.add(new HyUIHud.PreparedRefresh(hud, null, false));
+            }
+        }
+        try {
+            world.execute(() -> HudUpdateBatcher.runBatched(() -> {
+                for (HyUIHud.PreparedRefresh refresh : prepared) {
+                    try {
+                        refresh.hud().commitScheduledRefresh(refresh);
+                    } catch (RuntimeException e) {
+                        HyUIPlugin.getLog().logSevere("HUD refresh failed for " + refresh.hud().name, e);
+                    }
+                }
+            }));
+        } catch (RuntimeException e) {
+            HyUIPlugin.getLog().logSevere("Could not hand HUD refreshes back to the world thread", e);
+            abort(huds);
+        }
+    }
+
+    /**
+     * Gives up on refreshes that will not be committed, so the HUDs refresh again next time.
+     */
+    private static void abort(List<HyUIHud> huds) {
+        for (HyUIHud hud : huds) {
+            hud.abortScheduledRefresh();
+        }
+    }
+
+    private void dispatch(List<Task> due, long nowMs) {
+        Map<World, List<HyUIHud>> byWorld = new IdentityHashMap<>();
+        long count = 0;
+        long lagSum = 0;
+        long lagMax = 0;
+        for (Task task : due) {
+            HyUIHud hud = task.hud;
+            long rate = hud.getRefreshRateMs();
+            if (rate <= 0 || !hud.getPlayerRef().isValid()) {
+                // Stopped, or the player left. setRefreshRateMs schedules the HUD again if needed.
+                task.cancel();
+                continue;
+            }
+            World world = hud.getRefreshWorld();
+            if (world != null) {
+                byWorld.computeIfAbsent(world, w -> new ArrayList<>()).add(hud);
+                long lag = Math.max(0, nowMs - task.deadlineMs);
+                lagSum += lag;
+                lagMax = Math.max(lagMax, lag);
+                count++;
+            }
+            add(task, nowMs + rate);
+        }
+
+        for (Map.Entry<World, List<HyUIHud>> entry : byWorld.entrySet()) {
+            World world = entry.getKey();
+            List<HyUIHud> huds = entry.getValue();
+            world.execute(() -> {
+                List<HyUIHud> refreshing = new ArrayList<>(huds.size());
+                for (HyUIHud hud : huds) {
+                    try {
+                        if (hud.beginScheduledRefresh()) {
+                            refreshing.add(hud);
+                        }
+                    } catch (RuntimeException e) {
+                        HyUIPlugin.getLog().logSevere("HUD refresh failed for " + hud.name, e);
+                    }
+                }
+                if (!refreshing.isEmpty()) {
+                    try {
+                        BuildPool.EXECUTOR.execute(() -> prepare(world, refreshing));
+                    } catch (RuntimeException e) {
+                        HyUIPlugin.getLog().logSevere("Could not hand HUD refreshes to the build pool", e);
+                        abort(refreshing);
+                    }
+                }
+            });
+        }
+
+        synchronized (this) {
+            dispatched += count;
+            totalLagMs += lagSum;
+            maxLagMs = Math.max(maxLagMs, lagMax);
+            batches += byWorld.size();
+        }
+    }
+}
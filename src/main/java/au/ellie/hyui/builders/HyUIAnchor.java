@@ -3,6 +3,8 @@ package au.ellie.hyui.builders;
 import com.hypixel.hytale.server.core.ui.Anchor;
 import com.hypixel.hytale.server.core.ui.Value;
 
+import java.util.Objects;
+
 public class HyUIAnchor {
     private int left = -1;
     private int right = -1;
@@ -15,6 +17,8 @@ public class HyUIAnchor {
     private int width = -1;
     private int minWidth = -1;
     private int maxWidth = -1;
+    private boolean shared;
+
     public HyUIAnchor() {
     }
 
@@ -33,26 +37,31 @@ public class HyUIAnchor {
     }
 
     public HyUIAnchor setLeft(int left) {
+        checkMutable();
         this.left = left;
         return this;
     }
 
     public HyUIAnchor setRight(int right) {
+        checkMutable();
         this.right = right;
         return this;
     }
 
     public HyUIAnchor setTop(int top) {
+        checkMutable();
         this.top = top;
         return this;
     }
 
     public HyUIAnchor setBottom(int bottom) {
+        checkMutable();
         this.bottom = bottom;
         return this;
     }
 
     public HyUIAnchor setHeight(int height) {
+        checkMutable();
         this.height = height;
         return this;
     }
@@ -62,35 +71,80 @@ public class HyUIAnchor {
     }
 
     public HyUIAnchor setFull(int full) {
+        checkMutable();
         this.full = full;
         return this;
     }
 
     public HyUIAnchor setHorizontal(int horizontal) {
+        checkMutable();
         this.horizontal = horizontal;
         return this;
     }
 
     public HyUIAnchor setVertical(int vertical) {
+        checkMutable();
         this.vertical = vertical;
         return this;
     }
 
     public HyUIAnchor setWidth(int width) {
+        checkMutable();
         this.width = width;
         return this;
     }
 
     public HyUIAnchor setMinWidth(int minWidth) {
+        checkMutable();
         this.minWidth = minWidth;
         return this;
     }
 
     public HyUIAnchor setMaxWidth(int maxWidth) {
+        checkMutable();
         this.maxWidth = maxWidth;
         return this;
     }
 
+    /**
+     * @return A mutable copy of this anchor.
+     */
+    public HyUIAnchor copy() {
+        return new HyUIAnchor(left, right, top, bottom, height, full, horizontal, vertical, width, minWidth, maxWidth);
+    }
+
+    /**
+     * @return true if this instance was interned by {@link StyleInterner} and may be used by several builders.
+     */
+    boolean isShared() {
+        return shared;
+    }
+
+    void markShared() {
+        this.shared = true;
+    }
+
+    private void checkMutable() {
+        if (shared) {
+            throw new IllegalStateException("This anchor is shared by several elements, modify a copy() of it instead");
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof HyUIAnchor other)) return false;
+        return left == other.left && right == other.right && top == other.top && bottom == other.bottom
+                && height == other.height && full == other.full && horizontal == other.horizontal
+                && vertical == other.vertical && width == other.width && minWidth == other.minWidth
+                && maxWidth == other.maxWidth;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(left, right, top, bottom, height, full, horizontal, vertical, width, minWidth, maxWidth);
+    }
+
     public Anchor toHytaleAnchor() {
         Anchor anchor = new Anchor();
         if (left >= 0) anchor.setLeft(Value.of(left));
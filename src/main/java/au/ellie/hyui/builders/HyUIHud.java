@@ -3,21 +3,22 @@ package au.ellie.hyui.builders;
 import au.ellie.hyui.HyUIPlugin;
 import au.ellie.hyui.events.UIContext;
 import au.ellie.hyui.html.TemplateProcessor;
+import au.ellie.hyui.utils.HudUpdateBatcher;
 import au.ellie.hyui.utils.MultiHudWrapper;
 import com.hypixel.hytale.component.Ref;
+import com.hypixel.hytale.protocol.packets.interface_.CustomUICommand;
+import com.hypixel.hytale.protocol.packets.interface_.CustomUICommandType;
 import com.hypixel.hytale.component.Store;
 import com.hypixel.hytale.server.core.entity.entities.Player;
 import com.hypixel.hytale.server.core.entity.entities.player.hud.CustomUIHud;
 import com.hypixel.hytale.server.core.ui.builder.UICommandBuilder;
 import com.hypixel.hytale.server.core.universe.PlayerRef;
+import com.hypixel.hytale.server.core.universe.world.World;
 import com.hypixel.hytale.server.core.universe.world.storage.EntityStore;
 
 import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Consumer;
 
 /**
@@ -25,15 +26,35 @@ import java.util.function.Consumer;
  * It is important to store references to your existing HUDs to assist with updating elements.
  */
 public class HyUIHud extends CustomUIHud implements UIContext {
+    /**
+     * How periodic refreshes are sent to the client.
+     */
+    public enum RefreshMode {
+        /**
+         * Only property updates are sent. The HUD is re-rendered when elements were added, removed or moved.
+         */
+        DELTA,
+        /**
+         * The whole HUD is cleared and built again on every refresh.
+         */
+        RERENDER
+    }
+
+    // A refresh whose commit did not run within this time is dropped, for worlds that stopped running tasks.
+    private static final long REFRESH_STALE_MS = 10_000;
+
     public String name;
     protected final HyUInterface delegate;
-    private boolean isHidden;
-    private long refreshRateMs;
-    private long lastRefreshTime;
+    // Read by the refresh scheduler and the build threads.
+    private volatile boolean isHidden;
+    private volatile long refreshRateMs;
+    private volatile RefreshMode refreshMode = RefreshMode.DELTA;
     private Consumer<HyUIHud> refreshListener;
-
-    private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
-    private ScheduledFuture<?> refreshTask;
+    private volatile HudRefreshScheduler.Task refreshTask;
+    // When the refresh being built started, or 0. A refresh older than REFRESH_STALE_MS is given up on.
+    private final AtomicLong refreshStartedMs = new AtomicLong();
+    // True between add and remove. The scheduler drops the task while the refresh rate is 0.
+    private volatile boolean refreshing;
     
     public HyUIHud(String name, PlayerRef playerRef, 
                    String uiFile,
@@ -48,46 +69,125 @@ public class HyUIHud extends CustomUIHud implements UIContext {
     }
 
     private void startRefreshTask() {
+        refreshing = true;
         if (refreshTask == null || refreshTask.isCancelled()) {
-            refreshTask = scheduler.scheduleAtFixedRate(
-                    this::checkRefreshes, 
-                    100, 
-                    100, 
-                    TimeUnit.MILLISECONDS);
+            refreshTask = HudRefreshScheduler.schedule(this);
         }
     }
-    
-    private void checkRefreshes() {
+
+    private void stopRefreshTask() {
+        refreshing = false;
+        if (refreshTask != null) {
+            refreshTask.cancel();
+        }
+    }
+
+    /**
+     * @return The world to refresh this HUD on, or null if the player is between worlds.
+     */
+    World getRefreshWorld() {
+        var store = getStore();
+        return store != null ? store.getExternalData().getWorld() : null;
+    }
+
+    /**
+     * A periodic refresh built off the world thread. The commands are not changed once prepared.
+     *
+     * @param hud      The HUD.
+     * @param update   The property updates to send, or null if there are none.
+     * @param rerender Whether the HUD must be re-rendered instead.
+     */
+    record PreparedRefresh(HyUIHud hud, HyUInterface.PreparedUpdate update, boolean rerender) {}
+
+    /**
+     * First phase of a periodic refresh, on the world thread: runs the refresh listener.
+     *
+     * @return false if the HUD is not refreshed this time.
+     */
+    boolean beginScheduledRefresh() {
         if (isHidden) {
             HyUIPlugin.getLog().logFinest("Hidden HUD. Not refreshing.");
-            return;
+            return false;
         }
-        
-        PlayerRef playerRef = getPlayerRef();
-        if (!playerRef.isValid()) {
-            HyUIPlugin.getLog().logFinest("Player is invalid, cancelling refresh task for HUD.");
-            
-            // Player is no longer valid, cancel task and cleanup.
-            if (refreshTask != null) {
-                HyUIPlugin.getLog().logFinest("Player is invalid, cancelling refresh task for HUD.");
-                refreshTask.cancel(false);
-            }
-            return;
+        long now = System.currentTimeMillis();
+        long started = refreshStartedMs.get();
+        if (started != 0 && now - started < REFRESH_STALE_MS) {
+            HyUIPlugin.getLog().logFinest("HUD %s is still building its last refresh. Not refreshing.", this.name);
+            return false;
         }
-
-        if (playerRef.getReference() == null) {
-            return; // This might happen during world changes.
+        if (!refreshStartedMs.compareAndSet(started, now)) {
+            return false;
+        }
+        if (started != 0) {
+            HyUIPlugin.getLog().logWarning("HUD %s refresh was never committed, dropping it.", this.name);
+        }
+        try {
+            triggerRefresh();
+        } catch (RuntimeException e) {
+            abortScheduledRefresh();
+            throw e;
         }
+        return true;
+    }
 
-        long now = System.currentTimeMillis();
-        long rate = getRefreshRateMs();
+    /**
+     * Gives up on the refresh being built, when it could not be handed to the build pool or to the world
+     * thread, so the next refresh is not skipped.
+     */
+    void abortScheduledRefresh() {
+        refreshStartedMs.set(0);
+    }
+
+    /**
+     * Second phase, on a build thread: builds the property updates. The element tree is locked meanwhile,
+     * and data events for this HUD wait until the update is built.
+     */
+    PreparedRefresh prepareScheduledRefresh() {
+        if (refreshMode == RefreshMode.DELTA) {
+            HyUInterface.PreparedUpdate update = delegate.buildUpdate();
+            if (update != null) {
+                CustomUICommand[] commands = update.commands().getCommands();
+                boolean propertiesOnly = true;
+                for (CustomUICommand command : commands) {
+                    // Appends and removals target selectors that are only unique inside the multi-HUD group.
+                    if (command.type != CustomUICommandType.Set) {
+                        propertiesOnly = false;
+                        break;
+                    }
+                }
+                if (propertiesOnly) {
+                    return new PreparedRefresh(this, commands.length > 0 ? update : null, false);
+                }
+                HyUIPlugin.getLog().logFinest("HUD %s structure changed, re-rendering.", this.name);
+            }
+        }
+        return new PreparedRefresh(this, null, true);
+    }
 
-        if (rate > 0) {
-            if (now - lastRefreshTime >= rate) {
-                triggerRefresh();
-                refreshOrRerender(true, false);
-                lastRefreshTime = now;
+    /**
+     * Last phase, on the world thread: sends the update or re-renders the HUD. The refresh is dropped if the
+     * HUD was removed or hidden meanwhile, or if it was built again on the world thread, since that build
+     * already sent newer values.
+     */
+    void commitScheduledRefresh(PreparedRefresh refresh) {
+        try {
+            if (!refreshing || isHidden) {
+                HyUIPlugin.getLog().logFinest("HUD %s was removed or hidden while refreshing. Not sending.", this.name);
+                return;
+            }
+            if (refresh.rerender()) {
+                // The re-render may not go through the batcher, queued updates must reach the client before it.
+                HudUpdateBatcher.flush(getPlayerRef().getUuid());
+                refreshOrRerender(true, true);
+            } else if (refresh.update() != null) {
+                if (delegate.commitUpdate(refresh.update())) {
+                    sendUpdate(refresh.update().commands());
+                } else {
+                    HyUIPlugin.getLog().logFinest("HUD %s was rebuilt while refreshing. Dropping the refresh.", this.name);
+                }
             }
+        } finally {
+            abortScheduledRefresh();
         }
     }
     
@@ -151,8 +251,8 @@ public class HyUIHud extends CustomUIHud implements UIContext {
 
             MultiHudWrapper.hideCustomHud(player, getPlayerRef(), this.name);
         });
-        HyUIPlugin.getLog().logFinest("HUD removed: " + this.name);
-        refreshTask.cancel(false);
+        HyUIPlugin.getLog().logFinest("HUD removed: %s", this.name);
+        stopRefreshTask();
     }
 
     /**
@@ -167,8 +267,8 @@ public class HyUIHud extends CustomUIHud implements UIContext {
         if (player == null) return;
 
         MultiHudWrapper.hideCustomHud(player, getPlayerRef(), this.name);
-        HyUIPlugin.getLog().logFinest("HUD removed: " + this.name);
-        refreshTask.cancel(false);
+        HyUIPlugin.getLog().logFinest("HUD removed: %s", this.name);
+        stopRefreshTask();
     }
 
     /**
@@ -178,10 +278,8 @@ public class HyUIHud extends CustomUIHud implements UIContext {
      */
     public void add() {
         this.safeAdd();
-        if (refreshTask != null && !refreshTask.isCancelled()) {
-            refreshTask.cancel(false);
-        }
-        HyUIPlugin.getLog().logFinest("HUD added: " + this.name);
+        stopRefreshTask();
+        HyUIPlugin.getLog().logFinest("HUD added: %s", this.name);
         startRefreshTask();
     }
     
@@ -195,10 +293,8 @@ public class HyUIHud extends CustomUIHud implements UIContext {
         if (player == null) return;
 
         MultiHudWrapper.setCustomHud(player, getPlayerRef(), this.name, this);
-        if (refreshTask != null && !refreshTask.isCancelled()) {
-            refreshTask.cancel(false);
-        }
-        HyUIPlugin.getLog().logFinest("HUD added: " + this.name);
+        stopRefreshTask();
+        HyUIPlugin.getLog().logFinest("HUD added: %s", this.name);
         startRefreshTask();
     }
 
@@ -235,7 +331,20 @@ public class HyUIHud extends CustomUIHud implements UIContext {
     }
 
     public void setRefreshRateMs(long refreshRateMs) {
+        boolean changed = this.refreshRateMs != refreshRateMs;
         this.refreshRateMs = refreshRateMs;
+        // A running task picks the new rate up after its next refresh, one dropped at rate 0 is started again.
+        if (changed && refreshing && refreshRateMs > 0) {
+            startRefreshTask();
+        }
+    }
+
+    public RefreshMode getRefreshMode() {
+        return refreshMode;
+    }
+
+    public void setRefreshMode(RefreshMode refreshMode) {
+        this.refreshMode = refreshMode;
     }
 
     public void setRefreshListener(Consumer<HyUIHud> refreshListener) {
@@ -243,19 +352,30 @@ public class HyUIHud extends CustomUIHud implements UIContext {
     }
 
     /**
-     * Triggers the refresh listener if it exists.
+     * Triggers the refresh listener if it exists. The listener runs as an {@link #edit(Consumer)}.
      */
     public void triggerRefresh() {
-        if (refreshListener != null) {
-            refreshListener.accept(this);
+        Consumer<HyUIHud> listener = refreshListener;
+        if (listener != null) {
+            edit(listener);
         }
     }
 
+    /**
+     * Changes the HUD's elements while no refresh is being built. Refreshes are built on HyUI build threads,
+     * so changes made from anywhere but the refresh listener should go through this method.
+     *
+     * @param edit The change, given this HUD.
+     */
+    public void edit(Consumer<HyUIHud> edit) {
+        delegate.editLocked(() -> edit.accept(this));
+    }
+
     public void refreshOrRerender(boolean shouldRerender, boolean unsafe) {
         if (!shouldRerender) {
             UICommandBuilder uiCommandBuilder = new UICommandBuilder();
             delegate.buildFromCommandBuilder(uiCommandBuilder, true);
-            this.update(false, uiCommandBuilder);
+            sendUpdate(uiCommandBuilder);
         } else {
             // Re-render completely.
             if (!unsafe) {
@@ -275,6 +395,21 @@ public class HyUIHud extends CustomUIHud implements UIContext {
         return delegate.getCommandLog();
     }
 
+    /**
+     * @return The journal of the commands sent, and the totals of each build.
+     */
+    public CommandJournal getCommandJournal() {
+        return delegate.getCommandJournal();
+    }
+
+    /**
+     * @return The template processor this HUD renders with, or null. A page or HUD opened from a prototype
+     * builder has its own copy, so variables set on it only affect this HUD.
+     */
+    public TemplateProcessor getTemplateProcessor() {
+        return delegate.templateProcessor;
+    }
+
     @Override
     public Optional<Object> getValue(String id) {
         return delegate.getValue(id);
@@ -293,25 +428,39 @@ public class HyUIHud extends CustomUIHud implements UIContext {
     public void updatePage(boolean shouldClear) {}
     
     private void setVisibilityOnFirstElement(boolean value, boolean unsafe) {
-        for (UIElementBuilder<?> element : delegate.getElements()) {
-            element.withVisible(value);
-            break;
-        }
-       
+        // A refresh may be building the tree on another thread.
+        delegate.editLocked(() -> {
+            for (UIElementBuilder<?> element : delegate.getElements()) {
+                element.withVisible(value);
+                break;
+            }
+            isHidden = !isHidden;
+        });
+
         HyUIPlugin.getLog().logFinest("REDRAW: HUD SET VISIBILITY from single hud");
         this.refreshOrRerender(false, unsafe);
         // this.update(false, builder);
-        isHidden = !isHidden;
     }
 
     private UICommandBuilder configureFrom(HudBuilder updatedHudBuilder) {
         UICommandBuilder builder = new UICommandBuilder();
-        delegate.setEditCallbacks(updatedHudBuilder.editCallbacks);
-        delegate.setElements(updatedHudBuilder.getTopLevelElements());
-        delegate.setUiFile(updatedHudBuilder.uiFile);
+        List<UIElementBuilder<?>> elements = updatedHudBuilder.instantiateTopLevelElements();
+        // Swapped together, so a refresh building on another thread never sees half of the new configuration.
+        delegate.editLocked(() -> {
+            delegate.setEditCallbacks(updatedHudBuilder.editCallbacks);
+            delegate.setElements(elements);
+            delegate.setUiFile(updatedHudBuilder.uiFile);
+        });
         return builder;
     }
 
+    /**
+     * Sends an update of this HUD, merged with the other updates of the player when a batch is open.
+     */
+    private void sendUpdate(UICommandBuilder uiCommandBuilder) {
+        HudUpdateBatcher.send(getPlayerRef().getUuid(), uiCommandBuilder, commands -> this.update(false, commands));
+    }
+
     private void safeAdd() {
         var store = getStore();
         if (store == null) return;
@@ -1,5 +1,7 @@
 package au.ellie.hyui.builders;
 
+import java.util.Objects;
+
 /**
  * Represents the padding for a UI element.
  */
@@ -8,6 +10,7 @@ public class HyUIPadding {
     private Integer top;
     private Integer right;
     private Integer bottom;
+    private boolean shared;
 
     public HyUIPadding() {}
 
@@ -31,6 +34,7 @@ public class HyUIPadding {
     }
 
     public HyUIPadding setLeft(Integer left) {
+        checkMutable();
         this.left = left;
         return this;
     }
@@ -40,6 +44,7 @@ public class HyUIPadding {
     }
 
     public HyUIPadding setTop(Integer top) {
+        checkMutable();
         this.top = top;
         return this;
     }
@@ -49,6 +54,7 @@ public class HyUIPadding {
     }
 
     public HyUIPadding setRight(Integer right) {
+        checkMutable();
         this.right = right;
         return this;
     }
@@ -58,11 +64,13 @@ public class HyUIPadding {
     }
 
     public HyUIPadding setBottom(Integer bottom) {
+        checkMutable();
         this.bottom = bottom;
         return this;
     }
 
     public HyUIPadding setFull(int value) {
+        checkMutable();
         this.left = value;
         this.top = value;
         this.right = value;
@@ -71,10 +79,48 @@ public class HyUIPadding {
     }
 
     public HyUIPadding setSymmetric(int vertical, int horizontal) {
+        checkMutable();
         this.left = horizontal;
         this.right = horizontal;
         this.top = vertical;
         this.bottom = vertical;
         return this;
     }
-}
+
+    /**
+     * @return A mutable copy of this padding.
+     */
+    public HyUIPadding copy() {
+        return new HyUIPadding(left, top, right, bottom);
+    }
+
+    /**
+     * @return true if this instance was interned by {@link StyleInterner} and may be used by several builders.
+     */
+    boolean isShared() {
+        return shared;
+    }
+
+    void markShared() {
+        this.shared = true;
+    }
+
+    private void checkMutable() {
+        if (shared) {
+            throw new IllegalStateException("This padding is shared by several elements, modify a copy() of it instead");
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof HyUIPadding other)) return false;
+        return Objects.equals(left, other.left) && Objects.equals(top, other.top)
+                && Objects.equals(right, other.right) && Objects.equals(bottom, other.bottom);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(left, top, right, bottom);
+    }
+}
\ No newline at end of file
@@ -38,6 +38,21 @@ public class HyUIPage extends InteractiveCustomUIPage<DynamicPageData> implement
         return delegate.getCommandLog();
     }
 
+    /**
+     * @return The journal of the commands sent, and the totals of each build.
+     */
+    public CommandJournal getCommandJournal() {
+        return delegate.getCommandJournal();
+    }
+
+    /**
+     * @return The template processor this page renders with, or null. A page or HUD opened from a prototype
+     * builder has its own copy, so variables set on it only affect this page.
+     */
+    public TemplateProcessor getTemplateProcessor() {
+        return delegate.templateProcessor;
+    }
+
     @Override
     public Optional<Object> getValue(String id) {
         return delegate.getValue(id);
@@ -20,6 +20,23 @@ public class HyUIPatchStyle {
 
     public HyUIPatchStyle() {}
 
+    /**
+     * @return A copy of this PatchStyle.
+     */
+    public HyUIPatchStyle copy() {
+        HyUIPatchStyle copy = new HyUIPatchStyle();
+        copy.color = color;
+        copy.texturePath = texturePath;
+        copy.border = border;
+        copy.horizontalBorder = horizontalBorder;
+        copy.verticalBorder = verticalBorder;
+        copy.areaHeight = areaHeight;
+        copy.areaWidth = areaWidth;
+        copy.areaX = areaX;
+        copy.areaY = areaY;
+        return copy;
+    }
+
     /**
      * Sets the color for this PatchStyle.
      * 
@@ -2,8 +2,10 @@ package au.ellie.hyui.builders;
 
 import au.ellie.hyui.utils.ParseUtils;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
 
 public class HyUIStyle {
     public enum Alignment {
@@ -26,6 +28,7 @@ public class HyUIStyle {
     private String styleDocument = "Common.ui";
     private final Map<String, HyUIStyle> states = new HashMap<>();
     private final Map<String, Object> rawProperties = new HashMap<>();
+    private boolean shared;
 
     /**
      * Cleans the input string by removing units like rem, em, pt, px, and %.
@@ -36,11 +39,13 @@ public class HyUIStyle {
         return input.replaceAll("(rem|em|pt|px|%)", "").trim();
     }
     public HyUIStyle setFontSize(float fontSize) {
+        checkMutable();
         this.fontSize = fontSize;
         return this;
     }
 
     public HyUIStyle setFontSize(String fontSize) {
+        checkMutable();
         fontSize = cleanUnits(fontSize);
         ParseUtils.parseFloat(fontSize)
                 .ifPresent(v -> this.fontSize = v);
@@ -48,50 +53,59 @@ public class HyUIStyle {
     }
 
     public HyUIStyle setRenderBold(boolean renderBold) {
+        checkMutable();
         this.renderBold = renderBold;
         return this;
     }
 
     public HyUIStyle setRenderBold(String renderBold) {
+        checkMutable();
         renderBold = cleanUnits(renderBold);
         this.renderBold = Boolean.parseBoolean(renderBold);
         return this;
     }
 
     public HyUIStyle setRenderUppercase(boolean renderUppercase) {
+        checkMutable();
         this.renderUppercase = renderUppercase;
         return this;
     }
 
     public HyUIStyle setRenderUppercase(String renderUppercase) {
+        checkMutable();
         renderUppercase = cleanUnits(renderUppercase);
         this.renderUppercase = Boolean.parseBoolean(renderUppercase);
         return this;
     }
 
     public HyUIStyle setRenderItalics(boolean renderItalics) {
+        checkMutable();
         this.renderItalics = renderItalics;
         return this;
     }
 
     public HyUIStyle setRenderItalics(String renderItalics) {
+        checkMutable();
         renderItalics = cleanUnits(renderItalics);
         this.renderItalics = Boolean.parseBoolean(renderItalics);
         return this;
     }
 
     public HyUIStyle setTextColor(String textColor) {
+        checkMutable();
         textColor = cleanUnits(textColor);
         this.textColor = textColor;
         return this;
     }
 
     public HyUIStyle setLetterSpacing(int letterSpacing) {
+        checkMutable();
         this.letterSpacing = letterSpacing;
         return this;
     }
 
     public HyUIStyle setLetterSpacing(String letterSpacing) {
+        checkMutable();
         try {
             letterSpacing = cleanUnits(letterSpacing);
             this.letterSpacing = Integer.parseInt(letterSpacing);
@@ -100,17 +114,20 @@ public class HyUIStyle {
     }
 
     public HyUIStyle setWrap(boolean wrap) {
+        checkMutable();
         this.wrap = wrap;
         return this;
     }
 
     public HyUIStyle setWrap(String wrap) {
+        checkMutable();
         wrap = cleanUnits(wrap);
         this.wrap = Boolean.parseBoolean(wrap);
         return this;
     }
 
     public HyUIStyle setFontName(String fontName) {
+        checkMutable();
         String normalized = normalizeFontName(fontName);
         if (normalized != null) {
             this.fontName = normalized;
@@ -119,39 +136,46 @@ public class HyUIStyle {
     }
 
     public HyUIStyle setOutlineColor(String outlineColor) {
+        checkMutable();
         outlineColor = cleanUnits(outlineColor);
         this.outlineColor = outlineColor;
         return this;
     }
 
     public HyUIStyle setHorizontalAlignment(Alignment horizontalAlignment) {
+        checkMutable();
         this.horizontalAlignment = horizontalAlignment;
         return this;
     }
 
     public HyUIStyle setHorizontalAlignment(String horizontalAlignment) {
+        checkMutable();
         ParseUtils.parseEnum(horizontalAlignment, Alignment.class)
                 .ifPresent(v -> this.horizontalAlignment = v);
         return this;
     }
 
     public HyUIStyle setVerticalAlignment(Alignment verticalAlignment) {
+        checkMutable();
         this.verticalAlignment = verticalAlignment;
         return this;
     }
 
     public HyUIStyle setVerticalAlignment(String verticalAlignment) {
+        checkMutable();
         ParseUtils.parseEnum(verticalAlignment, Alignment.class)
                 .ifPresent(v -> this.verticalAlignment = v);
         return this;
     }
 
     public HyUIStyle setAlignment(Alignment alignment) {
+        checkMutable();
         this.alignment = alignment;
         return this;
     }
 
     public HyUIStyle setAlignment(String alignment) {
+        checkMutable();
         alignment = cleanUnits(alignment);
         ParseUtils.parseEnum(alignment, Alignment.class)
                 .ifPresent(v -> this.alignment = v);
@@ -159,32 +183,38 @@ public class HyUIStyle {
     }
 
     public HyUIStyle withStyleReference(String reference) {
+        checkMutable();
         this.styleReference = reference;
         return this;
     }
 
     public HyUIStyle withStyleReference(String document, String reference) {
+        checkMutable();
         this.styleDocument = document;
         this.styleReference = reference;
         return this;
     }
 
     public HyUIStyle setDisabledStyle(HyUIStyle style) {
+        checkMutable();
         states.put("Disabled", style);
         return this;
     }
 
     public HyUIStyle setHoverStyle(HyUIStyle style) {
+        checkMutable();
         states.put("Hovered", style);
         return this;
     }
 
     public HyUIStyle set(String key, Object value) {
+        checkMutable();
         this.rawProperties.put(key, value);
         return this;
     }
 
     public HyUIStyle set(Map<String, Object> properties) {
+        checkMutable();
         this.rawProperties.putAll(properties);
         return this;
     }
@@ -245,6 +275,76 @@ public class HyUIStyle {
         return styleDocument;
     }
 
+    /**
+     * @return A mutable copy of this style, including copies of its state styles.
+     */
+    public HyUIStyle copy() {
+        HyUIStyle copy = new HyUIStyle();
+        copy.fontSize = fontSize;
+        copy.renderBold = renderBold;
+        copy.renderItalics = renderItalics;
+        copy.renderUppercase = renderUppercase;
+        copy.textColor = textColor;
+        copy.letterSpacing = letterSpacing;
+        copy.wrap = wrap;
+        copy.fontName = fontName;
+        copy.outlineColor = outlineColor;
+        copy.horizontalAlignment = horizontalAlignment;
+        copy.verticalAlignment = verticalAlignment;
+        copy.alignment = alignment;
+        copy.styleReference = styleReference;
+        copy.styleDocument = styleDocument;
+        states.forEach((state, style) -> copy.states.put(state, style.copy()));
+        copy.rawProperties.putAll(rawProperties);
+        return copy;
+    }
+
+    /**
+     * @return true if this instance was interned by {@link StyleInterner} and may be used by several builders.
+     */
+    boolean isShared() {
+        return shared;
+    }
+
+    void markShared() {
+        this.shared = true;
+    }
+
+    private void checkMutable() {
+        if (shared) {
+            throw new IllegalStateException("This style is shared by several elements, modify a copy() of it instead");
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof HyUIStyle other)) return false;
+        return Objects.equals(fontSize, other.fontSize)
+                && Objects.equals(renderBold, other.renderBold)
+                && Objects.equals(renderItalics, other.renderItalics)
+                && Objects.equals(renderUppercase, other.renderUppercase)
+                && Objects.equals(textColor, other.textColor)
+                && Objects.equals(letterSpacing, other.letterSpacing)
+                && Objects.equals(wrap, other.wrap)
+                && Objects.equals(fontName, other.fontName)
+                && Objects.equals(outlineColor, other.outlineColor)
+                && horizontalAlignment == other.horizontalAlignment
+                && verticalAlignment == other.verticalAlignment
+                && alignment == other.alignment
+                && Objects.equals(styleReference, other.styleReference)
+                && Objects.equals(styleDocument, other.styleDocument)
+                && states.equals(other.states)
+                && rawProperties.equals(other.rawProperties);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(fontSize, renderBold, renderItalics, renderUppercase, textColor, letterSpacing, wrap,
+                fontName, outlineColor, horizontalAlignment, verticalAlignment, alignment, styleReference,
+                styleDocument, states, rawProperties);
+    }
+
     @Override
     public String toString() {
         return "HyUIStyle{" +
@@ -334,12 +434,19 @@ public class HyUIStyle {
         return sb.toString();
     }
 
+    /**
+     * @return The styles of the states. Read-only if this style is shared, and the state styles may be
+     * shared themselves, see {@link #copy()}.
+     */
     public Map<String, HyUIStyle> getStates() {
-        return states;
+        return shared ? Collections.unmodifiableMap(states) : states;
     }
 
+    /**
+     * @return The raw properties. Read-only if this style is shared.
+     */
     public Map<String, Object> getRawProperties() {
-        return rawProperties;
+        return shared ? Collections.unmodifiableMap(rawProperties) : rawProperties;
     }
 
     private String normalizeFontName(String fontName) {
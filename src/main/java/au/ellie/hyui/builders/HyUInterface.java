@@ -13,7 +13,7 @@ import au.ellie.hyui.events.SlotMouseEnteredEventData;
 import au.ellie.hyui.events.SlotMouseExitedEventData;
 import au.ellie.hyui.events.UIContext;
 import au.ellie.hyui.events.UIEventListener;
-import au.ellie.hyui.html.HtmlParser;
+import au.ellie.hyui.html.TemplateRegions;
 import au.ellie.hyui.html.TemplateProcessor;
 import com.hypixel.hytale.component.Ref;
 import com.hypixel.hytale.component.Store;
@@ -34,6 +34,7 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.function.Consumer;
 import java.util.UUID;
+import java.util.concurrent.locks.ReentrantLock;
 
 public abstract class HyUInterface implements UIContext {
 
@@ -41,12 +42,20 @@ public abstract class HyUInterface implements UIContext {
     protected List<UIElementBuilder<?>> elements;
     protected List<Consumer<UICommandBuilder>> editCallbacks;
     protected Map<String, Object> elementValues = new HashMap<>();
-    protected List<String> commandLog = new ArrayList<>();
+    protected final CommandJournal commandJournal = new CommandJournal();
+    private final PropertyShadow propertyShadow = new PropertyShadow();
+    // Single writer of the element tree and build state: held for every build and event.
+    private final ReentrantLock writeLock = new ReentrantLock();
     protected String templateHtml;
     protected TemplateProcessor templateProcessor;
     private boolean hasBuilt;
+    // Bumped by every build, so an update built off-thread can tell whether another build went out since.
+    private long buildVersion;
     private boolean runtimeTemplateUpdatesEnabled;
     private final Set<String> dirtyValueIds = new HashSet<>();
+    private TemplateRegions templateRegions;
+    // The top-level elements in the order they were last sent to the client.
+    private List<UIElementBuilder<?>> builtElements;
 
     public HyUInterface(String uiFile,
                         List<UIElementBuilder<?>> elements,
@@ -62,17 +71,34 @@ public abstract class HyUInterface implements UIContext {
         this.runtimeTemplateUpdatesEnabled = runtimeTemplateUpdatesEnabled;
     }
 
+    /**
+     * @return The commands of the last build, as they were journaled. Older builds are kept in
+     * {@link #getCommandJournal()}.
+     */
     @Override
     public List<String> getCommandLog() {
-        return new ArrayList<>(commandLog);
+        List<CommandJournal.Entry> entries = commandJournal.getLastBuildEntries();
+        List<String> log = new ArrayList<>(entries.size());
+        for (CommandJournal.Entry entry : entries) {
+            log.add(entry.toString());
+        }
+        return log;
+    }
+
+    /**
+     * @return The journal of the commands this interface sent, and the totals of its builds. It is only
+     * filled when {@link CommandJournal#isRecording()} is true.
+     */
+    public CommandJournal getCommandJournal() {
+        return commandJournal;
     }
 
     @Override
     public Optional<Object> getValue(String id) {
         if (HyUIPluginLogger.IS_DEV) {
-            HyUIPlugin.getLog().logFinest("Retrieving value for element: " + id);
+            HyUIPlugin.getLog().logFinest("Retrieving value for element: %s", id);
             for (var s : elementValues.entrySet()) {
-                HyUIPlugin.getLog().logFinest("Element: " + s.getKey() + ", Value: " + s.getValue());
+                HyUIPlugin.getLog().logFinest("Element: %s, Value: %s", s.getKey(), s.getValue());
             }
         }
         return Optional.ofNullable(elementValues.get(id));
@@ -98,24 +124,36 @@ public abstract class HyUInterface implements UIContext {
                       @Nonnull UIEventBuilder uiEventBuilder,
                       @Nonnull Store<EntityStore> store,
                       boolean updateOnly) {
-        HyUIPlugin.getLog().logFinest("REBUILD: HyUInterface build updateOnly=" + updateOnly);
-        HyUIPlugin.getLog().logFinest("Building HyUInterface" + (uiFile != null ? " from file: " + uiFile : ""));
+        writeLock.lock();
+        try {
+            buildLocked(uiCommandBuilder, uiEventBuilder, updateOnly);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void buildLocked(UICommandBuilder uiCommandBuilder, UIEventBuilder uiEventBuilder, boolean updateOnly) {
+        HyUIPlugin.getLog().logFinest("REBUILD: HyUInterface build updateOnly=%s", updateOnly);
+        HyUIPlugin.getLog().logFinest(() -> "Building HyUInterface" + (uiFile != null ? " from file: " + uiFile : ""));
 
-        LoggingUICommandBuilder loggingBuilder = new LoggingUICommandBuilder();
+        // When journaling, everything is built once into the recorder, then moved into the real builder.
+        LoggingUICommandBuilder recorder = CommandJournal.isRecording() && LoggingUICommandBuilder.canDrain()
+                ? new LoggingUICommandBuilder(commandJournal) : null;
+        UICommandBuilder commands = recorder != null ? recorder : uiCommandBuilder;
+        if (recorder != null) {
+            commandJournal.beginBuild();
+        }
+        int firstCommand = UICommandAccess.isAvailable() ? UICommandAccess.commandsOf(uiCommandBuilder).size() : -1;
 
         refreshTemplate(this);
 
         if (!updateOnly && uiFile != null) {
-            if (HyUIPluginLogger.IS_DEV)
-                loggingBuilder.append(uiFile);
-            uiCommandBuilder.append(uiFile);
+            commands.append(uiFile);
         }
 
         if (editCallbacks != null) {
             for (Consumer<UICommandBuilder> callback : editCallbacks) {
-                if (HyUIPluginLogger.IS_DEV)
-                    callback.accept(loggingBuilder);
-                callback.accept(uiCommandBuilder);
+                callback.accept(commands);
             }
         }
 
@@ -123,61 +161,151 @@ public abstract class HyUInterface implements UIContext {
             elementValues.clear();
             dirtyValueIds.clear();
         }
-        for (UIElementBuilder<?> element : elements) {
-            if (!updateOnly) {
+        if (!updateOnly) {
+            for (UIElementBuilder<?> element : elements) {
                 captureInitialValues(element);
             }
-            if (HyUIPluginLogger.IS_DEV) {
-                if (updateOnly) {
-                    element.buildUpdates(loggingBuilder, new UIEventBuilder());
-                } else {
-                    element.build(loggingBuilder, new UIEventBuilder());
-                }
-            }
-            if (updateOnly) {
-                element.buildUpdates(uiCommandBuilder, uiEventBuilder);
-            } else {
-                element.build(uiCommandBuilder, uiEventBuilder);
-            }
         }
+        buildElements(builtElements, commands, uiEventBuilder, updateOnly);
+        builtElements = new ArrayList<>(elements);
 
         if (!updateOnly) {
             refreshTemplate(this);
-            for (UIElementBuilder<?> element : elements) {
-                if (HyUIPluginLogger.IS_DEV) {
-                    element.buildUpdates(loggingBuilder, new UIEventBuilder());
-                }
-                element.buildUpdates(uiCommandBuilder, uiEventBuilder);
-            }
+            buildElements(builtElements, commands, uiEventBuilder, true);
+            builtElements = new ArrayList<>(elements);
         }
 
-        this.commandLog = loggingBuilder.getCommandLog();
+        finishBuild(uiCommandBuilder, recorder, firstCommand, updateOnly, true);
+    }
+
+    /**
+     * An update built to be sent later, see {@link #buildUpdate()}.
+     *
+     * @param commands The commands of the update.
+     * @param version  The build version of the update.
+     */
+    protected record PreparedUpdate(UICommandBuilder commands, long version) {}
+
+    /**
+     * Builds an update of an interface that was already built, to be sent later through
+     * {@link #commitUpdate(PreparedUpdate)}.
+     *
+     * @return The update, or null if the interface was not fully built yet.
+     */
+    protected PreparedUpdate buildUpdate() {
+        writeLock.lock();
+        try {
+            if (!hasBuilt) {
+                return null;
+            }
+            UICommandBuilder uiCommandBuilder = new UICommandBuilder();
+            buildFromCommandBuilderLocked(uiCommandBuilder, true, false);
+            return new PreparedUpdate(uiCommandBuilder, buildVersion);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Checks that no other build went out since the update was built, and records its values as sent.
+     * The caller must send the update right after.
+     *
+     * @param update The update.
+     * @return false if the interface was built again since, the update may then be older than what the
+     * client shows and must be dropped.
+     */
+    protected boolean commitUpdate(PreparedUpdate update) {
+        writeLock.lock();
+        try {
+            if (update.version() != buildVersion) {
+                return false;
+            }
+            propertyShadow.record(update.commands().getCommands());
+            return true;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Drops property sets that did not change, then moves recorded commands into the real builder, so the
+     * journal only holds the commands that are sent.
+     *
+     * @param firstCommand Index of the first command of this build in the builder, or -1 if the commands
+     *                     are not accessible.
+     * @param sendNow      Whether the build is sent right away, see {@link PropertyShadow#filter}.
+     */
+    private void finishBuild(UICommandBuilder uiCommandBuilder, LoggingUICommandBuilder recorder, int firstCommand,
+                             boolean updateOnly, boolean sendNow) {
+        buildVersion++;
+        if (recorder != null) {
+            int dropped = propertyShadow.filter(recorder.getPendingCommands(), 0, !updateOnly, sendNow);
+            recorder.drainTo(uiCommandBuilder);
+            CommandJournal.BuildStats stats = commandJournal.endBuild(dropped);
+            HyUIPlugin.getLog().logFinest("Built HyUInterface: %s commands, %s bytes, %s elements, %s unchanged sets dropped",
+                    stats.commands(), stats.bytes(), stats.elementsTouched(), stats.dropped());
+        } else if (firstCommand >= 0) {
+            int dropped = propertyShadow.filter(UICommandAccess.commandsOf(uiCommandBuilder), firstCommand, !updateOnly,
+                    sendNow);
+            HyUIPlugin.getLog().logFinest("Dropped %s unchanged property sets", dropped);
+        }
         this.hasBuilt = true;
     }
 
+    /**
+     * Builds the top-level elements, removing and re-appending those whose position changed since the
+     * previous build.
+     */
+    private void buildElements(List<UIElementBuilder<?>> built, UICommandBuilder commands, UIEventBuilder events,
+                               boolean updateOnly) {
+        UIElementBuilder.buildChildUpdates(built, elements, commands, updateOnly, (element, elementUpdateOnly) -> {
+            if (elementUpdateOnly) {
+                element.buildUpdates(commands, events);
+            } else {
+                element.build(commands, events);
+            }
+        });
+    }
+
     public void buildFromCommandBuilder(@Nonnull UICommandBuilder uiCommandBuilder) {
         buildFromCommandBuilder(uiCommandBuilder, false);
     }
 
+    /**
+     * Builds the interface into the given builder. This may run on any thread: the element tree is locked
+     * for the build, and data events that arrive meanwhile wait for it to finish.
+     */
     public void buildFromCommandBuilder(@Nonnull UICommandBuilder uiCommandBuilder, boolean updateOnly) {
-        HyUIPlugin.getLog().logFinest("REBUILD: HyUInterface buildFromCommandBuilder updateOnly=" + updateOnly);
-        HyUIPlugin.getLog().logFinest("Building HyUInterface " + (uiFile != null ? " from file: " + uiFile : ""));
+        writeLock.lock();
+        try {
+            buildFromCommandBuilderLocked(uiCommandBuilder, updateOnly, true);
+        } finally {
+            writeLock.unlock();
+        }
+    }
 
-        LoggingUICommandBuilder loggingBuilder = new LoggingUICommandBuilder();
+    private void buildFromCommandBuilderLocked(UICommandBuilder uiCommandBuilder, boolean updateOnly, boolean sendNow) {
+        HyUIPlugin.getLog().logFinest("REBUILD: HyUInterface buildFromCommandBuilder updateOnly=%s", updateOnly);
+        HyUIPlugin.getLog().logFinest(() -> "Building HyUInterface " + (uiFile != null ? " from file: " + uiFile : ""));
+
+        // When journaling, everything is built once into the recorder, then moved into the real builder.
+        LoggingUICommandBuilder recorder = CommandJournal.isRecording() && LoggingUICommandBuilder.canDrain()
+                ? new LoggingUICommandBuilder(commandJournal) : null;
+        UICommandBuilder commands = recorder != null ? recorder : uiCommandBuilder;
+        if (recorder != null) {
+            commandJournal.beginBuild();
+        }
+        int firstCommand = UICommandAccess.isAvailable() ? UICommandAccess.commandsOf(uiCommandBuilder).size() : -1;
 
         refreshTemplate(this);
 
         if (!updateOnly && uiFile != null) {
-            if (HyUIPluginLogger.IS_DEV)
-                loggingBuilder.append(uiFile);
-            uiCommandBuilder.append(uiFile);
+            commands.append(uiFile);
         }
 
         if (editCallbacks != null) {
             for (Consumer<UICommandBuilder> callback : editCallbacks) {
-                if (HyUIPluginLogger.IS_DEV)
-                    callback.accept(loggingBuilder);
-                callback.accept(uiCommandBuilder);
+                callback.accept(commands);
             }
         }
 
@@ -185,36 +313,21 @@ public abstract class HyUInterface implements UIContext {
             elementValues.clear();
             dirtyValueIds.clear();
         }
-        for (UIElementBuilder<?> element : elements) {
-            if (!updateOnly) {
+        if (!updateOnly) {
+            for (UIElementBuilder<?> element : elements) {
                 captureInitialValues(element);
             }
-            if (HyUIPluginLogger.IS_DEV) {
-                if (updateOnly) {
-                    element.buildUpdates(loggingBuilder, null);
-                } else {
-                    element.build(loggingBuilder, null);
-                }
-            }
-            if (updateOnly) {
-                element.buildUpdates(uiCommandBuilder, null);
-            } else {
-                element.build(uiCommandBuilder, null);
-            }
         }
+        buildElements(builtElements, commands, null, updateOnly);
+        builtElements = new ArrayList<>(elements);
 
         if (!updateOnly) {
             refreshTemplate(this);
-            for (UIElementBuilder<?> element : elements) {
-                if (HyUIPluginLogger.IS_DEV) {
-                    element.buildUpdates(loggingBuilder, null);
-                }
-                element.buildUpdates(uiCommandBuilder, null);
-            }
+            buildElements(builtElements, commands, null, true);
+            builtElements = new ArrayList<>(elements);
         }
 
-        this.commandLog = loggingBuilder.getCommandLog();
-        this.hasBuilt = true;
+        finishBuild(uiCommandBuilder, recorder, firstCommand, updateOnly, sendNow);
     }
 
     protected void captureInitialValues(UIElementBuilder<?> element) {
@@ -232,9 +345,19 @@ public abstract class HyUInterface implements UIContext {
     }
 
     protected void handleDataEventInternal(DynamicPageData data, UIContext context) {
-        HyUIPlugin.getLog().logFinest("Received DataEvent: Action=" + data.action);
+        // A build on another thread holds the tree, the event waits until it is built.
+        writeLock.lock();
+        try {
+            handleDataEventLocked(data, context);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private void handleDataEventLocked(DynamicPageData data, UIContext context) {
+        HyUIPlugin.getLog().logFinest("Received DataEvent: Action=%s", data.action);
         data.values.forEach((key, value) -> {
-            HyUIPlugin.getLog().logFinest("  Property: " + key + " = " + value);
+            HyUIPlugin.getLog().logFinest("  Property: %s = %s", key, value);
         });
 
         for (UIElementBuilder<?> element : elements) {
@@ -369,7 +492,7 @@ public abstract class HyUInterface implements UIContext {
     }
 
     protected void setUiFile(String uiFile) {
-        this.uiFile = uiFile;
+        editLocked(() -> this.uiFile = uiFile);
     }
 
     public List<UIElementBuilder<?>> getElements() {
@@ -377,7 +500,13 @@ public abstract class HyUInterface implements UIContext {
     }
 
     protected void setElements(List<UIElementBuilder<?>> elements) {
-        this.elements = elements;
+        editLocked(() -> {
+            this.elements = elements;
+            this.builtElements = null;
+            if (templateRegions != null) {
+                templateRegions.invalidate();
+            }
+        });
     }
 
     public List<Consumer<UICommandBuilder>> getEditCallbacks() {
@@ -385,7 +514,7 @@ public abstract class HyUInterface implements UIContext {
     }
 
     protected void setEditCallbacks(List<Consumer<UICommandBuilder>> editCallbacks) {
-        this.editCallbacks = editCallbacks;
+        editLocked(() -> this.editCallbacks = editCallbacks);
     }
 
     public Map<String, Object> getElementValues() {
@@ -393,11 +522,45 @@ public abstract class HyUInterface implements UIContext {
     }
 
     protected void setElementValues(Map<String, Object> elementValues) {
-        this.elementValues = elementValues;
+        editLocked(() -> this.elementValues = elementValues);
+    }
+
+    /**
+     * Runs a change of the element tree or of the build inputs. Builds on other threads are finished
+     * before it runs, and the next one starts after it.
+     *
+     * @param edit The change.
+     */
+    protected void editLocked(Runnable edit) {
+        writeLock.lock();
+        try {
+            edit.run();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * @return true once the interface was fully built, so updates can be sent for it.
+     */
+    protected boolean hasBuilt() {
+        return hasBuilt;
     }
 
     protected void resetBuildState() {
-        this.hasBuilt = false;
+        writeLock.lock();
+        try {
+            this.hasBuilt = false;
+            this.builtElements = null;
+            // Updates prepared for the previous elements must not be sent.
+            buildVersion++;
+            propertyShadow.clear();
+            if (templateRegions != null) {
+                templateRegions.invalidate();
+            }
+        } finally {
+            writeLock.unlock();
+        }
     }
 
     public void releaseDynamicImages(UUID playerUuid) {
@@ -406,7 +569,7 @@ public abstract class HyUInterface implements UIContext {
 
     private void releaseDynamicImagesRecursive(UIElementBuilder<?> element, UUID playerUuid) {
         if (element instanceof DynamicImageBuilder) {
-            HyUIPlugin.getLog().logFinest("Releasing image: " + element.getEffectiveId());
+            HyUIPlugin.getLog().logFinest("Releasing image: %s", element.getEffectiveId());
             ((DynamicImageBuilder) element).releaseSlotForPlayer(playerUuid);
         }
         for (UIElementBuilder<?> child : element.children) {
@@ -418,21 +581,30 @@ public abstract class HyUInterface implements UIContext {
         if (!runtimeTemplateUpdatesEnabled || templateHtml == null || templateProcessor == null) {
             return;
         }
-        if (hasBuilt && dirtyValueIds.isEmpty()) {
-            //return;
+        if (templateRegions == null) {
+            templateRegions = new TemplateRegions(templateProcessor, templateHtml);
         }
         HyUIPlugin.getLog().logFinest("REBUILD: Template refresh");
-        HtmlParser parser = new HtmlParser();
-        String processedHtml = templateProcessor.process(templateHtml, context);
-        List<UIElementBuilder<?>> updatedElements = parser.parse(processedHtml);
-        
-        this.elements = mergeElementLists(this.elements, updatedElements);
-        applyRuntimeValues(this.elements, context);
-        if (hasBuilt) {
-            //dirtyValueIds.clear();
+        // Only regions whose inputs changed since the last refresh are re-rendered and merged.
+        List<UIElementBuilder<?>> refreshed = templateRegions.refresh(this.elements, context, templateReconciler);
+        if (refreshed != null) {
+            this.elements = refreshed;
         }
+        applyRuntimeValues(this.elements, context);
     }
 
+    private final TemplateRegions.Reconciler templateReconciler = new TemplateRegions.Reconciler() {
+        @Override
+        public List<UIElementBuilder<?>> merge(List<UIElementBuilder<?>> current, List<UIElementBuilder<?>> updated) {
+            return mergeElementLists(current, updated);
+        }
+
+        @Override
+        public List<UIElementBuilder<?>> children(UIElementBuilder<?> group) {
+            return group.children;
+        }
+    };
+
     private List<UIElementBuilder<?>> mergeElementLists(List<UIElementBuilder<?>> currentElements,
                                                        List<UIElementBuilder<?>> updatedElements) {
 /*
@@ -445,11 +617,15 @@ public abstract class HyUInterface implements UIContext {
 */
 
         Map<String, UIElementBuilder<?>> currentById = new HashMap<>();
+        Map<String, UIElementBuilder<?>> currentByKey = new HashMap<>();
         List<UIElementBuilder<?>> currentNoId = new ArrayList<>();
         for (UIElementBuilder<?> element : currentElements) {
             String id = getStableId(element);
             if (id != null && !id.isBlank()) {
                 currentById.put(id, element);
+            } else if (element.getTemplateKey() != null) {
+                // Keyed {{#each}} items keep their builder wherever they move.
+                currentByKey.put(element.getTemplateKey(), element);
             } else {
                 currentNoId.add(element);
             }
@@ -475,6 +651,8 @@ public abstract class HyUInterface implements UIContext {
             String id = getStableId(updated);
             if (id != null && !id.isBlank()) {
                 current = currentById.get(id);
+            } else if (updated.getTemplateKey() != null) {
+                current = currentByKey.remove(updated.getTemplateKey());
             } else {
                 UIElementBuilder<?> result = null;
                 for (int i = 0; i < unusedNoId.size(); i++) {
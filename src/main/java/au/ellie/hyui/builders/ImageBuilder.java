@@ -66,7 +66,7 @@ public class ImageBuilder extends UIElementBuilder<ImageBuilder> implements Layo
         applyLayoutMode(commands, wrappingGroupSelector);
 
         if (imagePath != null) {
-            HyUIPlugin.getLog().logFinest("Setting AssetPath on " + selector + " to " + imagePath);
+            HyUIPlugin.getLog().logFinest("Setting AssetPath on %s to %s", selector, imagePath);
             commands.set(selector + ".AssetPath", "UI/Custom/" + imagePath);
         }
     }
@@ -4,6 +4,7 @@ import au.ellie.hyui.HyUIPlugin;
 import au.ellie.hyui.assets.DynamicImageAsset;
 import au.ellie.hyui.events.UIContext;
 import au.ellie.hyui.html.HtmlParser;
+import au.ellie.hyui.html.TemplateCache;
 import au.ellie.hyui.html.TemplateProcessor;
 import au.ellie.hyui.utils.HyvatarUtils;
 import au.ellie.hyui.utils.PngDownloadUtils;
@@ -30,6 +31,8 @@ public abstract class InterfaceBuilder<T extends InterfaceBuilder<T>> {
     protected String templateHtml;
     protected TemplateProcessor templateProcessor;
     protected boolean runtimeTemplateUpdatesEnabled;
+    protected boolean streamingParseEnabled;
+    protected boolean prototype;
 
     @SuppressWarnings("unchecked")
     protected T self() {
@@ -48,7 +51,7 @@ public abstract class InterfaceBuilder<T extends InterfaceBuilder<T>> {
         this.templateHtml = null;
         this.templateProcessor = null;
         this.runtimeTemplateUpdatesEnabled = false;
-        new HtmlParser().parseToInterface(this, html);
+        newParser().parseToInterface(this, html);
         return self();
     }
 
@@ -72,13 +75,23 @@ public abstract class InterfaceBuilder<T extends InterfaceBuilder<T>> {
     public T fromTemplate(String html, TemplateProcessor template) {
         this.templateHtml = html;
         this.templateProcessor = template;
-        HtmlParser parser = new HtmlParser();
+        HtmlParser parser = newParser();
         parser.setTemplateProcessor(template);
         parser.parseToInterface(this, html);
         return self();
     }
+
+    private HtmlParser newParser() {
+        HtmlParser parser = new HtmlParser();
+        parser.setStreaming(streamingParseEnabled);
+        return parser;
+    }
     
     private String loadHtmlFromResources(String resourceFileName) {
+        return TemplateCache.getResource(resourceFileName, () -> readHtmlResource(resourceFileName));
+    }
+
+    private String readHtmlResource(String resourceFileName) {
         try (InputStream inputStream = InterfaceBuilder.class.getResourceAsStream(resourceFileName)) {
             if (inputStream == null) {
                 throw new IllegalArgumentException("Resource not found: " + resourceFileName);
@@ -124,6 +137,32 @@ public abstract class InterfaceBuilder<T extends InterfaceBuilder<T>> {
         return fromTemplate(html, variables);
     }
 
+    /**
+     * Parses HTML loaded after this call in streaming mode, see {@link HtmlParser#setStreaming(boolean)}.
+     * Call it before {@code fromHtml}, {@code fromTemplate} or {@code loadHtml}.
+     *
+     * @param enabled true to stream.
+     * @return This builder instance for method chaining
+     */
+    public T enableStreamingParse(boolean enabled) {
+        this.streamingParseEnabled = enabled;
+        return self();
+    }
+
+    /**
+     * Uses this builder as a prototype: every page or HUD opened from it gets its own copy of the elements,
+     * see {@link UIElementBuilder#copyTree()}, and of the template processor, see
+     * {@link TemplateProcessor#copy()}, instead of sharing this builder's instances. Parse the HTML
+     * once and open it for each player without parsing it again.
+     *
+     * @param enabled true to hand out copies.
+     * @return This builder instance for method chaining
+     */
+    public T asPrototype(boolean enabled) {
+        this.prototype = enabled;
+        return self();
+    }
+
     public T enableRuntimeTemplateUpdates(boolean enabled) {
         this.runtimeTemplateUpdatesEnabled = enabled;
         return self();
@@ -322,7 +361,7 @@ public abstract class InterfaceBuilder<T extends InterfaceBuilder<T>> {
             return;
         }
         try {
-            HyUIPlugin.getLog().logFinest("Preparing dynamic image from URL: " + url);
+            HyUIPlugin.getLog().logFinest("Preparing dynamic image from URL: %s", url);
             byte[] imageBytes;
             if (dynamicImage instanceof HyvatarImageBuilder hyvatar && !hyvatar.hasCustomImageUrl()) {
                 imageBytes = HyvatarUtils.downloadRenderPng(
@@ -342,14 +381,14 @@ public abstract class InterfaceBuilder<T extends InterfaceBuilder<T>> {
             dynamicImage.setSlotIndex(playerUuid, asset.getSlotIndex());
 
             DynamicImageAsset.sendToPlayer(pRef.getPacketHandler(), asset);
-            HyUIPlugin.getLog().logFinest("Dynamic image sent using path: " + asset.getPath());
+            HyUIPlugin.getLog().logFinest("Dynamic image sent using path: %s", asset.getPath());
         } catch (IllegalStateException e) {
-            HyUIPlugin.getLog().logFinest("Failed to allocate dynamic image slot: " + e.getMessage());
+            HyUIPlugin.getLog().logFinest("Failed to allocate dynamic image slot: %s", e.getMessage());
         } catch (IOException e) {
-            HyUIPlugin.getLog().logFinest("Failed to download dynamic image: " + e.getMessage());
+            HyUIPlugin.getLog().logFinest("Failed to download dynamic image: %s", e.getMessage());
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
-            HyUIPlugin.getLog().logFinest("Dynamic image download interrupted: " + e.getMessage());
+            HyUIPlugin.getLog().logFinest("Dynamic image download interrupted: %s", e.getMessage());
         }
     }
 
@@ -367,6 +406,30 @@ public abstract class InterfaceBuilder<T extends InterfaceBuilder<T>> {
         return topLevel;
     }
 
+    /**
+     * @return The top-level elements for a new page or HUD: copies when this builder is a prototype,
+     * otherwise the builder's own instances.
+     */
+    protected List<UIElementBuilder<?>> instantiateTopLevelElements() {
+        List<UIElementBuilder<?>> topLevel = getTopLevelElements();
+        if (!prototype) {
+            return topLevel;
+        }
+        List<UIElementBuilder<?>> copies = new ArrayList<>(topLevel.size());
+        for (UIElementBuilder<?> element : topLevel) {
+            copies.add(element.copyTree());
+        }
+        return copies;
+    }
+
+    /**
+     * @return The template processor for a new page or HUD: a copy when this builder is a prototype, so
+     * variables set for one player do not reach the others, otherwise the builder's own processor.
+     */
+    protected TemplateProcessor instantiateTemplateProcessor() {
+        return prototype && templateProcessor != null ? templateProcessor.copy() : templateProcessor;
+    }
+
     /**
      * Get all elements in the element registry for this builder.
      * 
@@ -13,6 +13,7 @@ import com.hypixel.hytale.server.core.ui.builder.UICommandBuilder;
 import com.hypixel.hytale.server.core.ui.builder.UIEventBuilder;
 
 import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -209,34 +210,34 @@ public class ItemGridBuilder extends UIElementBuilder<ItemGridBuilder> implement
         applyScrollbarStyle(commands, selector);
         
         if (backgroundMode != null) {
-            HyUIPlugin.getLog().logFinest("Setting BackgroundMode: " + backgroundMode + " for " + selector);
+            HyUIPlugin.getLog().logFinest("Setting BackgroundMode: %s for %s", backgroundMode, selector);
             commands.set(selector + ".BackgroundMode", backgroundMode);
         }
         if (renderItemQualityBackground != null) {
-            HyUIPlugin.getLog().logFinest("Setting RenderItemQualityBackground: " + renderItemQualityBackground + " for " + selector);
+            HyUIPlugin.getLog().logFinest("Setting RenderItemQualityBackground: %s for %s", renderItemQualityBackground, selector);
             commands.set(selector + ".RenderItemQualityBackground", renderItemQualityBackground);
         }
         if (areItemsDraggable != null) {
-            HyUIPlugin.getLog().logFinest("Setting AreItemsDraggable: " + areItemsDraggable + " for " + selector);
+            HyUIPlugin.getLog().logFinest("Setting AreItemsDraggable: %s for %s", areItemsDraggable, selector);
             commands.set(selector + ".AreItemsDraggable", areItemsDraggable);
             if (areItemsDraggable) {
                 setAllSlotsActivatable();
             }
         }
         if (keepScrollPosition != null) {
-            HyUIPlugin.getLog().logFinest("Setting KeepScrollPosition: " + keepScrollPosition + " for " + selector);
+            HyUIPlugin.getLog().logFinest("Setting KeepScrollPosition: %s for %s", keepScrollPosition, selector);
             commands.set(selector + ".KeepScrollPosition", keepScrollPosition);
         }
         if (showScrollbar != null) {
-            HyUIPlugin.getLog().logFinest("Setting ShowScrollbar: " + showScrollbar + " for " + selector);
+            HyUIPlugin.getLog().logFinest("Setting ShowScrollbar: %s for %s", showScrollbar, selector);
             commands.set(selector + ".ShowScrollbar", showScrollbar);
         }
         if (slotsPerRow != null) {
-            HyUIPlugin.getLog().logFinest("Setting SlotsPerRow: " + slotsPerRow + " for " + selector);
+            HyUIPlugin.getLog().logFinest("Setting SlotsPerRow: %s for %s", slotsPerRow, selector);
             commands.set(selector + ".SlotsPerRow", slotsPerRow);
         }
         if (!slots.isEmpty()) {
-            HyUIPlugin.getLog().logFinest("Setting Slots for " + selector);
+            HyUIPlugin.getLog().logFinest("Setting Slots for %s", selector);
             commands.set(selector + ".Slots", slots);
         }
         
@@ -259,7 +260,7 @@ public class ItemGridBuilder extends UIElementBuilder<ItemGridBuilder> implement
                 )
                 return;
             String eventId = getEffectiveId();
-            HyUIPlugin.getLog().logFinest("Adding " + type.name());
+            HyUIPlugin.getLog().logFinest("Adding %s", type.name());
             events.addEventBinding(type, selector,
                     EventData.of("Action", type.name())
                             .append("Target", eventId),
@@ -289,6 +290,28 @@ public class ItemGridBuilder extends UIElementBuilder<ItemGridBuilder> implement
         }
     }
 
+    /**
+     * Copies slots field by field, since building may mark them activatable.
+     */
+    @Override
+    protected Object copyCustomValue(Object value) {
+        if (!(value instanceof ItemGridSlot slot)) {
+            return super.copyCustomValue(value);
+        }
+        ItemGridSlot copy = new ItemGridSlot();
+        try {
+            for (Field field : ItemGridSlot.class.getDeclaredFields()) {
+                if (!Modifier.isStatic(field.getModifiers())) {
+                    field.setAccessible(true);
+                    field.set(copy, field.get(slot));
+                }
+            }
+        } catch (IllegalAccessException | RuntimeException e) {
+            throw new IllegalStateException("Cannot copy an ItemGridSlot", e);
+        }
+        return copy;
+    }
+
     // Might need it one day.
     public static ItemStack getItemStack(ItemGridSlot slot) {
         if (!ITEM_STACK_FIELD_AVAILABLE) {
@@ -72,15 +72,15 @@ public class ItemSlotBuilder extends UIElementBuilder<ItemSlotBuilder> {
         if (selector == null) return;
 
         if (showQualityBackground != null) {
-            HyUIPlugin.getLog().logFinest("Setting ShowQualityBackground: " + showQualityBackground + " for " + selector);
+            HyUIPlugin.getLog().logFinest("Setting ShowQualityBackground: %s for %s", showQualityBackground, selector);
             commands.set(selector + ".ShowQualityBackground", showQualityBackground);
         }
         if (showQuantity != null) {
-            HyUIPlugin.getLog().logFinest("Setting ShowQuantity: " + showQuantity + " for " + selector);
+            HyUIPlugin.getLog().logFinest("Setting ShowQuantity: %s for %s", showQuantity, selector);
             commands.set(selector + ".ShowQuantity", showQuantity);
         }
         if (itemId != null) {
-            HyUIPlugin.getLog().logFinest("Setting ItemId on " + selector + " to " + itemId);
+            HyUIPlugin.getLog().logFinest("Setting ItemId on %s to %s", selector, itemId);
             commands.set(selector + ".ItemId", itemId);
         }
 
@@ -149,12 +149,12 @@ public class LabelBuilder extends UIElementBuilder<LabelBuilder> implements Back
         applyBackground(commands, selector);
 
         if (text != null) {
-            HyUIPlugin.getLog().logFinest("Setting Text: " + text + " for " + selector);
+            HyUIPlugin.getLog().logFinest("Setting Text: %s for %s", text, selector);
             commands.set(selector + ".Text", text);
         }
 
         if (hyUIStyle == null && style != null) {
-            HyUIPlugin.getLog().logFinest("Setting Raw Style: " + style + " for " + selector);
+            HyUIPlugin.getLog().logFinest("Setting Raw Style: %s for %s", style, selector);
             commands.set(selector + ".Style", style);
         }
     }
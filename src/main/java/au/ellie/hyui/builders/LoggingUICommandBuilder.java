@@ -1,59 +1,157 @@
 package au.ellie.hyui.builders;
 
+import au.ellie.hyui.builders.CommandJournal.Op;
+import au.ellie.hyui.builders.CommandJournal.ValueKind;
+import com.hypixel.hytale.protocol.packets.interface_.CustomUICommand;
 import com.hypixel.hytale.server.core.ui.Value;
 import com.hypixel.hytale.server.core.ui.builder.UICommandBuilder;
+
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 
 /**
- * A wrapper for UICommandBuilder that logs all .set() calls.
+ * A UICommandBuilder that journals every command as it is made.
+ * <p>
+ * The interface is built into this builder once, then the commands are moved into the real builder with
+ * {@link #drainTo(UICommandBuilder)}, so recording does not require a second build. Each command is written
+ * to a {@link CommandJournal} with the encoded size of the command it produced, when it is drained, so
+ * commands removed from this builder before then are not journaled.
+ * </p>
  */
 public class LoggingUICommandBuilder extends UICommandBuilder {
-    private final List<String> commandLog = new ArrayList<>();
+    private final CommandJournal journal;
+    private final List<CustomUICommand> commands;
+    private final List<Pending> pending = new ArrayList<>();
+    // Commands already matched to a pending entry.
+    private int matched;
+
+    // A call waiting to be journaled, with the command it produced, or null if it produced none.
+    private record Pending(Op op, String selector, ValueKind kind, String preview, int size, CustomUICommand command) {}
+
+    public LoggingUICommandBuilder(CommandJournal journal) {
+        this.journal = journal;
+        this.commands = UICommandAccess.commandsOf(this);
+    }
+
+    /**
+     * @return true if this builder can be used, see {@link #drainTo(UICommandBuilder)}.
+     */
+    public static boolean canDrain() {
+        return UICommandAccess.isAvailable();
+    }
+
+    private UICommandBuilder record(UICommandBuilder result, Op op, String selector, ValueKind kind, Object value) {
+        CustomUICommand command = null;
+        if (commands.size() > matched) {
+            matched = commands.size();
+            command = commands.get(matched - 1);
+        }
+        pending.add(new Pending(op, selector, kind, CommandJournal.preview(value), size(command), command));
+        return result;
+    }
+
+    private static int size(CustomUICommand command) {
+        if (command == null) {
+            return 0;
+        }
+        return length(command.selector) + length(command.data) + length(command.text);
+    }
+
+    private static int length(String value) {
+        return value != null ? value.length() : 0;
+    }
 
     @Override
     public UICommandBuilder set(String path, String value) {
-        commandLog.add("set(" + path + ", " + value + ")");
-        return super.set(path, value);
+        return record(super.set(path, value), Op.SET, path, ValueKind.STRING, value);
     }
 
     @Override
     public UICommandBuilder set(String path, boolean value) {
-        commandLog.add("set(" + path + ", " + value + ")");
-        return super.set(path, value);
+        return record(super.set(path, value), Op.SET, path, ValueKind.BOOLEAN, value);
     }
 
     @Override
     public UICommandBuilder set(String path, int value) {
-        commandLog.add("set(" + path + ", " + value + ")");
-        return super.set(path, value);
+        return record(super.set(path, value), Op.SET, path, ValueKind.INT, value);
     }
 
     @Override
     public UICommandBuilder set(String path, float value) {
-        commandLog.add("set(" + path + ", " + value + ")");
-        return super.set(path, value);
+        return record(super.set(path, value), Op.SET, path, ValueKind.FLOAT, value);
     }
 
     @Override
     public UICommandBuilder set(String path, double value) {
-        commandLog.add("set(" + path + ", " + value + ")");
-        return super.set(path, value);
+        return record(super.set(path, value), Op.SET, path, ValueKind.DOUBLE, value);
     }
 
     @Override
     public UICommandBuilder set(String path, com.hypixel.hytale.server.core.Message value) {
-        commandLog.add("set(" + path + ", " + value + ")");
-        return super.set(path, value);
+        return record(super.set(path, value), Op.SET, path, ValueKind.MESSAGE, value);
     }
 
     @Override
     public UICommandBuilder set(String path, Value value) {
-        commandLog.add("set(" + path + ", " + value.toString() + ")");
-        return super.set(path, value);
+        return record(super.set(path, value), Op.SET, path, ValueKind.VALUE, value);
+    }
+
+    @Override
+    public UICommandBuilder setObject(String path, Object value) {
+        return record(super.setObject(path, value), Op.SET_OBJECT, path, ValueKind.OBJECT, value);
+    }
+
+    @Override
+    public UICommandBuilder append(String documentPath) {
+        return record(super.append(documentPath), Op.APPEND, null, ValueKind.DOCUMENT, documentPath);
+    }
+
+    @Override
+    public UICommandBuilder append(String selector, String documentPath) {
+        return record(super.append(selector, documentPath), Op.APPEND, selector, ValueKind.DOCUMENT, documentPath);
+    }
+
+    @Override
+    public UICommandBuilder appendInline(String selector, String document) {
+        return record(super.appendInline(selector, document), Op.APPEND_INLINE, selector, ValueKind.DOCUMENT, document);
+    }
+
+    @Override
+    public UICommandBuilder remove(String selector) {
+        return record(super.remove(selector), Op.REMOVE, selector, ValueKind.NONE, null);
+    }
+
+    /**
+     * Journals the commands still in this builder and moves them to the end of the target builder, in
+     * order, leaving this builder empty.
+     *
+     * @param target The builder that sends the commands.
+     */
+    public void drainTo(UICommandBuilder target) {
+        Set<CustomUICommand> kept = Collections.newSetFromMap(new IdentityHashMap<>());
+        kept.addAll(commands);
+        for (Pending entry : pending) {
+            if (entry.command() == null || kept.contains(entry.command())) {
+                journal.record(entry.op(), entry.selector(), entry.kind(), entry.preview(), entry.size());
+            }
+        }
+        pending.clear();
+        UICommandAccess.commandsOf(target).addAll(commands);
+        commands.clear();
+        matched = 0;
+    }
+
+    /**
+     * @return The commands built so far, not yet drained. Commands removed from it are not journaled.
+     */
+    List<CustomUICommand> getPendingCommands() {
+        return commands;
     }
 
-    public List<String> getCommandLog() {
-        return new ArrayList<>(commandLog);
+    public CommandJournal getJournal() {
+        return journal;
     }
 }
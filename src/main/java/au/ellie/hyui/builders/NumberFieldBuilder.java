@@ -222,12 +222,12 @@ public class NumberFieldBuilder extends UIElementBuilder<NumberFieldBuilder> {
         if (selector == null) return;
 
         if (value != null) {
-            HyUIPlugin.getLog().logFinest("Setting Value: " + value + " for " + selector);
+            HyUIPlugin.getLog().logFinest("Setting Value: %s for %s", value, selector);
             commands.set(selector + ".Value", value);
         }
         
         if (hyUIStyle == null && style != null) {
-            HyUIPlugin.getLog().logFinest("Setting Style: " + style + " for " + selector);
+            HyUIPlugin.getLog().logFinest("Setting Style: %s for %s", style, selector);
             commands.set(selector + ".Style", style);
         } else if (hyUIStyle == null) {
             commands.set(selector + ".Style", Value.ref("Common.ui", "DefaultInputFieldStyle"));
@@ -243,7 +243,7 @@ public class NumberFieldBuilder extends UIElementBuilder<NumberFieldBuilder> {
             if (anchor == null) {
                 anchor = new HyUIAnchor();
             }
-            anchor.setHeight(38);
+            getAnchor().setHeight(38);
             // Need to force anchor setting.
             commands.setObject(selector + ".Anchor", anchor.toHytaleAnchor());
         }
@@ -259,7 +259,7 @@ public class NumberFieldBuilder extends UIElementBuilder<NumberFieldBuilder> {
         listeners.forEach(listener -> {
             if (listener.type() == CustomUIEventBindingType.ValueChanged) {
                 String eventId = getEffectiveId();
-                HyUIPlugin.getLog().logFinest("Adding ValueChanged event binding for " + selector + " with eventId: " + eventId);
+                HyUIPlugin.getLog().logFinest("Adding ValueChanged event binding for %s with eventId: %s", selector, eventId);
                 events.addEventBinding(CustomUIEventBindingType.ValueChanged, selector, 
                         EventData.of("@ValueDouble", selector + ".Value")
                             .append("Target", eventId)
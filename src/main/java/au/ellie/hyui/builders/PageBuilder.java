@@ -95,7 +95,7 @@ public class PageBuilder extends InterfaceBuilder<PageBuilder> {
         Player playerComponent = store.getComponent(playerRef.getReference(), Player.getComponentType());
         sendDynamicImageIfNeeded(playerRef);
         PageManager pageManager = playerComponent.getPageManager();
-        this.lastPage = new HyUIPage(playerRef, lifetime, uiFile, getTopLevelElements(), editCallbacks, templateHtml, templateProcessor, runtimeTemplateUpdatesEnabled);
+        this.lastPage = new HyUIPage(playerRef, lifetime, uiFile, instantiateTopLevelElements(), editCallbacks, templateHtml, instantiateTemplateProcessor(), runtimeTemplateUpdatesEnabled);
         pageManager.openCustomPage(playerRef.getReference(), store, this.lastPage);
         return this.lastPage;
     }
@@ -114,7 +114,7 @@ public class PageBuilder extends InterfaceBuilder<PageBuilder> {
         Player playerComponent = store.getComponent(playerRefParam.getReference(), Player.getComponentType());
         sendDynamicImageIfNeeded(playerRefParam);
         PageManager pageManager = playerComponent.getPageManager();
-        this.lastPage = new HyUIPage(playerRefParam, lifetime, uiFile, getTopLevelElements(), editCallbacks, templateHtml, templateProcessor, runtimeTemplateUpdatesEnabled);
+        this.lastPage = new HyUIPage(playerRefParam, lifetime, uiFile, instantiateTopLevelElements(), editCallbacks, templateHtml, instantiateTemplateProcessor(), runtimeTemplateUpdatesEnabled);
         pageManager.openCustomPage(playerRefParam.getReference(), store, this.lastPage);
         return this.lastPage;
     }
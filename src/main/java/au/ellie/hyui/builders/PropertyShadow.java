@@ -0,0 +1,76 @@
+package au.ellie.hyui.builders;
+
+import com.hypixel.hytale.protocol.packets.interface_.CustomUICommand;
+import com.hypixel.hytale.protocol.packets.interface_.CustomUICommandType;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The last value sent for every property of an interface, used to drop updates that would not change anything.
+ * <p>
+ * Values are compared in their encoded form, so plain sets, {@code setObject} and the BSON style documents
+ * of {@link au.ellie.hyui.utils.PropertyBatcher} are all covered.
+ * </p>
+ * Only builds made of property sets are filtered. A build that appends, removes or clears elements sends
+ * every set and starts the shadow over, like a full build, since re-created elements start from their markup
+ * defaults.
+ * {@code .Value} properties are never dropped, the player can change them on the client.
+ */
+final class PropertyShadow {
+    private final Map<String, String> sent = new HashMap<>();
+
+    /**
+     * Removes the sets of a build that repeat the last value sent.
+     *
+     * @param commands  The commands of the builder.
+     * @param start     Index of the first command of the build.
+     * @param fullBuild Whether the build recreates the whole interface.
+     * @param sendNow   Whether the build is sent right away. Otherwise its sets are only recorded once
+     *                  {@link #record(CustomUICommand[])} is called when it is sent.
+     * @return The number of commands removed.
+     */
+    int filter(List<CustomUICommand> commands, int start, boolean fullBuild, boolean sendNow) {
+        boolean structural = fullBuild;
+        for (int i = start; i < commands.size() && !structural; i++) {
+            structural = commands.get(i).type != CustomUICommandType.Set;
+        }
+        if (structural) {
+            // Re-created elements start from their markup defaults, whatever was sent to their predecessors.
+            sent.clear();
+        }
+
+        int write = start;
+        for (int i = start; i < commands.size(); i++) {
+            CustomUICommand command = commands.get(i);
+            if (command.type == CustomUICommandType.Set && command.selector != null) {
+                String previous = sendNow ? sent.put(command.selector, command.data) : sent.get(command.selector);
+                if (!structural && previous != null && Objects.equals(previous, command.data)
+                        && !command.selector.endsWith(".Value")) {
+                    continue;
+                }
+            }
+            commands.set(write++, command);
+        }
+        int removed = commands.size() - write;
+        commands.subList(write, commands.size()).clear();
+        return removed;
+    }
+
+    /**
+     * Records the sets of a build that was filtered without {@code sendNow}, once it is sent.
+     */
+    void record(CustomUICommand[] commands) {
+        for (CustomUICommand command : commands) {
+            if (command.type == CustomUICommandType.Set && command.selector != null) {
+                sent.put(command.selector, command.data);
+            }
+        }
+    }
+
+    void clear() {
+        sent.clear();
+    }
+}
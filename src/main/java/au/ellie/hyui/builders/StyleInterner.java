@@ -0,0 +1,74 @@
+package au.ellie.hyui.builders;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Canonicalises parsed styles, anchors and paddings, so elements with identical declarations share one
+ * instance instead of each holding their own copy.
+ * <p>
+ * Interned instances are marked as shared. Builders treat them as read-only: {@link UIElementBuilder#getHyUIStyle()}
+ * and {@link UIElementBuilder#getAnchor()} replace a shared instance with a private copy before handing it out,
+ * so mutating one element never changes another.
+ * </p>
+ */
+public final class StyleInterner {
+    private static final int MAX_INTERNED = 1024;
+
+    private static final Pool<HyUIStyle> STYLES = new Pool<>();
+    private static final Pool<HyUIAnchor> ANCHORS = new Pool<>();
+    private static final Pool<HyUIPadding> PADDINGS = new Pool<>();
+
+    private StyleInterner() {
+    }
+
+    /**
+     * @param style A style that is no longer modified by the caller.
+     * @return The shared instance equal to the style.
+     */
+    public static HyUIStyle intern(HyUIStyle style) {
+        if (style == null || style.isShared()) {
+            return style;
+        }
+        style.markShared();
+        return STYLES.intern(style);
+    }
+
+    /**
+     * @param anchor An anchor that is no longer modified by the caller.
+     * @return The shared instance equal to the anchor.
+     */
+    public static HyUIAnchor intern(HyUIAnchor anchor) {
+        if (anchor == null || anchor.isShared()) {
+            return anchor;
+        }
+        anchor.markShared();
+        return ANCHORS.intern(anchor);
+    }
+
+    /**
+     * @param padding A padding that is no longer modified by the caller.
+     * @return The shared instance equal to the padding.
+     */
+    public static HyUIPadding intern(HyUIPadding padding) {
+        if (padding == null || padding.isShared()) {
+            return padding;
+        }
+        padding.markShared();
+        return PADDINGS.intern(padding);
+    }
+
+    private static final class Pool<V> {
+        private final LinkedHashMap<V, V> values = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<V, V> eldest) {
+                return size() > MAX_INTERNED;
+            }
+        };
+
+        synchronized V intern(V value) {
+            V canonical = values.putIfAbsent(value, value);
+            return canonical != null ? canonical : value;
+        }
+    }
+}
@@ -336,7 +336,7 @@ public class TabNavigationBuilder extends UIElementBuilder<TabNavigationBuilder>
             this.addChild(tabButton);
             tabButtons.add(tabButton);
 
-            HyUIPlugin.getLog().logFinest("Added tab: " + tab.id() + " (selected: " + isSelected + ")");
+            HyUIPlugin.getLog().logFinest("Added tab: %s (selected: %s)", tab.id(), isSelected);
         }
     }
 
@@ -315,7 +315,7 @@ public class TextFieldBuilder extends UIElementBuilder<TextFieldBuilder>
         if (selector == null) return;
 
         if (value != null) {
-            HyUIPlugin.getLog().logFinest("Setting Value: " + value + " for " + selector);
+            HyUIPlugin.getLog().logFinest("Setting Value: %s for %s", value, selector);
             commands.set(selector + ".Value", value);
         }
 
@@ -363,7 +363,7 @@ public class TextFieldBuilder extends UIElementBuilder<TextFieldBuilder>
         }
 
         if (hyUIStyle == null && style != null) {
-            HyUIPlugin.getLog().logFinest("Setting Style: " + style + " for " + selector);
+            HyUIPlugin.getLog().logFinest("Setting Style: %s for %s", style, selector);
             commands.set(selector + ".Style", style);
         }
         if (listeners.isEmpty()) {
@@ -382,7 +382,7 @@ public class TextFieldBuilder extends UIElementBuilder<TextFieldBuilder>
                     listener.type() == CustomUIEventBindingType.Validating ||
                     listener.type() == CustomUIEventBindingType.FocusGained) {
                 String eventId = getEffectiveId();
-                HyUIPlugin.getLog().logFinest("Adding " + listener.type() + " event binding for " + selector + " with eventId: " + eventId);
+                HyUIPlugin.getLog().logFinest("Adding %s event binding for %s with eventId: %s", listener.type(), selector, eventId);
                 events.addEventBinding(listener.type(), selector,
                         EventData.of("@Value", selector + ".Value")
                                 .append("Target", eventId)
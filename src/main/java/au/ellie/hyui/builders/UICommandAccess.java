@@ -0,0 +1,52 @@
+package au.ellie.hyui.builders;
+
+import au.ellie.hyui.HyUIPlugin;
+import com.hypixel.hytale.protocol.packets.interface_.CustomUICommand;
+import com.hypixel.hytale.server.core.ui.builder.UICommandBuilder;
+
+import java.lang.reflect.Field;
+import java.util.List;
+
+/**
+ * Access to the commands a {@link UICommandBuilder} collected, which it does not expose for editing.
+ */
+final class UICommandAccess {
+    private static final Field COMMANDS_FIELD = findCommandsField();
+
+    private UICommandAccess() {}
+
+    private static Field findCommandsField() {
+        try {
+            Field field = UICommandBuilder.class.getDeclaredField("commands");
+            field.setAccessible(true);
+            return field;
+        } catch (NoSuchFieldException | RuntimeException e) {
+            HyUIPlugin.getLog().logFinest("Could not access UICommandBuilder commands: %s", e);
+            return null;
+        }
+    }
+
+    /**
+     * @return true if {@link #commandsOf(UICommandBuilder)} can be used.
+     */
+    static boolean isAvailable() {
+        return COMMANDS_FIELD != null;
+    }
+
+    /**
+     * @param builder The builder.
+     * @return The live list of commands of the builder, changes are sent with it.
+     * @throws IllegalStateException if the commands are not accessible, check {@link #isAvailable()} first.
+     */
+    @SuppressWarnings("unchecked")
+    static List<CustomUICommand> commandsOf(UICommandBuilder builder) {
+        if (COMMANDS_FIELD == null) {
+            throw new IllegalStateException("UICommandBuilder commands are not accessible");
+        }
+        try {
+            return (List<CustomUICommand>) COMMANDS_FIELD.get(builder);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException("UICommandBuilder commands are not accessible", e);
+        }
+    }
+}
@@ -10,15 +10,30 @@ import com.hypixel.hytale.protocol.packets.interface_.CustomUIEventBindingType;
 import com.hypixel.hytale.server.core.Message;
 import com.hypixel.hytale.server.core.ui.builder.UICommandBuilder;
 import com.hypixel.hytale.server.core.ui.builder.UIEventBuilder;
+import com.hypixel.hytale.server.core.ui.DropdownEntryInfo;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.SortedSet;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.UUID;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
+import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
+import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
+import java.lang.reflect.RecordComponent;
 
 /**
  * A builder class for constructing UI elements with a hierarchical structure and configurable 
@@ -26,7 +41,7 @@ import java.lang.reflect.Modifier;
  * as styles, visibility, children, tooltips, custom callbacks, and more. This class is intended 
  * to be extended and further customized.
  */
-public abstract class UIElementBuilder<T extends UIElementBuilder<T>> {
+public abstract class UIElementBuilder<T extends UIElementBuilder<T>> implements Cloneable {
     protected final Theme theme;
     protected String elementPath;
     protected String uiFilePath;
@@ -46,6 +61,9 @@ public abstract class UIElementBuilder<T extends UIElementBuilder<T>> {
     protected Message tooltipTextSpan;
     protected Boolean hitTestVisible;
     protected Integer flexWeight;
+    protected String templateKey;
+    // The children in the order they were last sent to the client, used to emit structural updates.
+    private List<UIElementBuilder<?>> builtChildren;
     protected final List<BiConsumer<UICommandBuilder, String>> editAfterCallbacks = new ArrayList<>();
     protected final List<BiConsumer<UICommandBuilder, String>> editBeforeCallbacks = new ArrayList<>();
     protected final Map<String, HyUIStyle> secondaryStyles = new HashMap<>();
@@ -57,7 +75,8 @@ public abstract class UIElementBuilder<T extends UIElementBuilder<T>> {
             "theme",
             "parentSelector",
             "editAfterCallbacks",
-            "editBeforeCallbacks"
+            "editBeforeCallbacks",
+            "builtChildren"
     );
 
     private static int idCounter = 0;
@@ -102,10 +121,204 @@ public abstract class UIElementBuilder<T extends UIElementBuilder<T>> {
         return userId;
     }
 
+    /**
+     * @return The key of the keyed {@code {{#each}}} item this element was rendered for, or null.
+     */
+    public String getTemplateKey() {
+        return templateKey;
+    }
+
+    /**
+     * Sets the key used to match this element to the same item of a keyed {@code {{#each}}} across
+     * template refreshes.
+     *
+     * @param key the item key
+     * @return the builder instance for method chaining
+     */
+    @SuppressWarnings("unchecked")
+    public T withTemplateKey(String key) {
+        this.templateKey = key;
+        return (T) this;
+    }
+
     protected void applyRuntimeValue(Object value) {
         // Default no-op for elements without a value.
     }
 
+    /**
+     * Copies this element and everything below it, so the same parsed tree can back several interfaces
+     * without sharing state. Lists, sets, maps, records, patch styles, styles, anchors and paddings are copied
+     * and nested builders are copied in turn, in a single pass over the tree. Styles, anchors and paddings
+     * interned by {@link StyleInterner} cannot be modified and are shared. Immutable values, messages,
+     * dropdown entries and callbacks such as listeners are shared. Any other value is passed to
+     * {@link #copyCustomValue(Object)}, which subclasses override for the types they hold.
+     * The copy keeps the element ids of the original.
+     *
+     * @return The copy.
+     * @throws IllegalStateException if a field holds a value that cannot be copied.
+     */
+    public UIElementBuilder<?> copyTree() {
+        return copyTree(new IdentityHashMap<>());
+    }
+
+    private UIElementBuilder<?> copyTree(Map<Object, Object> copies) {
+        UIElementBuilder<?> copy;
+        try {
+            copy = (UIElementBuilder<?>) super.clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+        copies.put(this, copy);
+
+        Class<?> type = getClass();
+        while (type != null && UIElementBuilder.class.isAssignableFrom(type)) {
+            for (Field field : type.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers())) {
+                    continue;
+                }
+                try {
+                    // Final fields such as children can only be replaced once made accessible.
+                    field.setAccessible(true);
+                    Object value = field.get(copy);
+                    Object copiedValue = field.getName().equals("builtChildren") ? null : copy.copyValue(value, copies);
+                    if (copiedValue != value) {
+                        if (copiedValue != null && !field.getType().isInstance(copiedValue)) {
+                            throw new IllegalStateException("Cannot copy " + type.getSimpleName() + "." + field.getName()
+                                    + ": its " + value.getClass().getName() + " was copied as a "
+                                    + copiedValue.getClass().getName());
+                        }
+                        field.set(copy, copiedValue);
+                    }
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException("Cannot copy " + type.getSimpleName() + "." + field.getName(), e);
+                }
+            }
+            if (type == UIElementBuilder.class) {
+                break;
+            }
+            type = type.getSuperclass();
+        }
+        return copy;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private Object copyValue(Object value, Map<Object, Object> copies) {
+        if (value == null || isShareable(value)) {
+            return value;
+        }
+        Object existing = copies.get(value);
+        if (existing != null) {
+            return existing;
+        }
+        return switch (value) {
+            case UIElementBuilder<?> builder -> builder.copyTree(copies);
+            // Interned instances cannot be modified and stay shared, the others are copied.
+            case HyUIStyle style -> {
+                HyUIStyle copy = style.isShared() ? style : style.copy();
+                copies.put(style, copy);
+                yield copy;
+            }
+            case HyUIAnchor anchor -> {
+                HyUIAnchor copy = anchor.isShared() ? anchor : anchor.copy();
+                copies.put(anchor, copy);
+                yield copy;
+            }
+            case HyUIPadding padding -> {
+                HyUIPadding copy = padding.isShared() ? padding : padding.copy();
+                copies.put(padding, copy);
+                yield copy;
+            }
+            case HyUIPatchStyle patchStyle -> {
+                HyUIPatchStyle copy = patchStyle.copy();
+                copies.put(patchStyle, copy);
+                yield copy;
+            }
+            case Record record -> copyRecord(record, copies);
+            case List<?> list -> {
+                List<Object> copy = new ArrayList<>(list.size());
+                copies.put(list, copy);
+                for (Object item : list) {
+                    copy.add(copyValue(item, copies));
+                }
+                yield copy;
+            }
+            case Set<?> set -> {
+                Set<Object> copy = set instanceof SortedSet<?> sorted
+                        ? new TreeSet<>((Comparator<Object>) sorted.comparator())
+                        : new LinkedHashSet<>();
+                copies.put(set, copy);
+                for (Object item : set) {
+                    copy.add(copyValue(item, copies));
+                }
+                yield copy;
+            }
+            case Map<?, ?> map -> {
+                Map<Object, Object> copy;
+                if (map instanceof SortedMap<?, ?> sorted) {
+                    copy = new TreeMap<>((Comparator<Object>) sorted.comparator());
+                } else if (map instanceof EnumMap<?, ?> enumMap) {
+                    // Keeps the key type, the values are replaced below.
+                    copy = new EnumMap(enumMap);
+                } else {
+                    copy = new LinkedHashMap<>();
+                }
+                copies.put(map, copy);
+                for (Map.Entry<?, ?> entry : map.entrySet()) {
+                    copy.put(entry.getKey(), copyValue(entry.getValue(), copies));
+                }
+                yield copy;
+            }
+            default -> copyCustomValue(value);
+        };
+    }
+
+    /**
+     * @return true if the value can be shared between copies: it is immutable, or it is a callback.
+     */
+    private static boolean isShareable(Object value) {
+        return value instanceof String || value instanceof Boolean || value instanceof Character
+                || value instanceof Integer || value instanceof Long || value instanceof Double
+                || value instanceof Float || value instanceof Short || value instanceof Byte
+                || value instanceof Enum<?> || value instanceof UUID
+                || value instanceof Message || value instanceof DropdownEntryInfo
+                || value instanceof SpriteBuilder.Frame
+                || value instanceof BiConsumer<?, ?> || value instanceof Consumer<?> || value instanceof Runnable;
+    }
+
+    private Record copyRecord(Record record, Map<Object, Object> copies) {
+        RecordComponent[] components = record.getClass().getRecordComponents();
+        Class<?>[] types = new Class<?>[components.length];
+        Object[] values = new Object[components.length];
+        try {
+            for (int i = 0; i < components.length; i++) {
+                types[i] = components[i].getType();
+                Method accessor = components[i].getAccessor();
+                accessor.setAccessible(true);
+                values[i] = copyValue(accessor.invoke(record), copies);
+            }
+            Constructor<?> constructor = record.getClass().getDeclaredConstructor(types);
+            constructor.setAccessible(true);
+            Record copy = (Record) constructor.newInstance(values);
+            copies.put(record, copy);
+            return copy;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot copy " + record.getClass().getName(), e);
+        }
+    }
+
+    /**
+     * Copies a value of a type {@link #copyTree()} does not know. Builders holding such values override
+     * this to copy them, or return the value itself if it is safe to share.
+     *
+     * @param value The value held by a field of this builder, or by a collection in one.
+     * @return The copy.
+     * @throws IllegalStateException if the value cannot be copied.
+     */
+    protected Object copyCustomValue(Object value) {
+        throw new IllegalStateException("Cannot copy a " + value.getClass().getName() + " held by "
+                + getClass().getSimpleName() + ", override copyCustomValue to copy it");
+    }
+
     protected void applyTemplate(UIElementBuilder<?> template) {
         if (template == null || !getClass().equals(template.getClass())) {
             return;
@@ -136,7 +349,14 @@ public abstract class UIElementBuilder<T extends UIElementBuilder<T>> {
         }
     }
 
+    /**
+     * @return The element style. A style shared with other elements is replaced by a private copy first,
+     * so it is safe to modify.
+     */
     public HyUIStyle getHyUIStyle() {
+        if (hyUIStyle != null && hyUIStyle.isShared()) {
+            hyUIStyle = hyUIStyle.copy();
+        }
         return hyUIStyle;
     }
 
@@ -270,7 +490,14 @@ public abstract class UIElementBuilder<T extends UIElementBuilder<T>> {
         return (T) this;
     }
 
+    /**
+     * @return The element anchor. An anchor shared with other elements is replaced by a private copy first,
+     * so it is safe to modify.
+     */
     public HyUIAnchor getAnchor() {
+        if (anchor != null && anchor.isShared()) {
+            anchor = anchor.copy();
+        }
         return anchor;
     }
 
@@ -404,7 +631,7 @@ public abstract class UIElementBuilder<T extends UIElementBuilder<T>> {
         if (wrapInGroup && parentSelector != null) {
             String wrappingGroupId = getWrappingGroupId();
             if (!updateOnly) {
-                HyUIPlugin.getLog().logFinest("Creating wrapping group: #" + wrappingGroupId + " for element: " + (typeSelector != null ? typeSelector : elementPath));
+                HyUIPlugin.getLog().logFinest("Creating wrapping group: #%s for element: %s", wrappingGroupId, typeSelector != null ? typeSelector : elementPath);
 
                 StringBuilder inlineMarkup = new StringBuilder();
                 inlineMarkup.append("Group #").append(wrappingGroupId).append(" { ");
@@ -453,13 +680,13 @@ public abstract class UIElementBuilder<T extends UIElementBuilder<T>> {
 
     protected void buildBase(UICommandBuilder commands, UIEventBuilder events, boolean updateOnly) {
         String selector = getSelector();
-        HyUIPlugin.getLog().logFinest("Building element: " + (typeSelector != null ? typeSelector : elementPath) + " with ID: " + id + " at selector: " + selector);
+        HyUIPlugin.getLog().logFinest("Building element: %s with ID: %s at selector: %s", typeSelector != null ? typeSelector : elementPath, id, selector);
 
         if (parentSelector != null) {
             if (!updateOnly) {
                 String path = getAppendPath();
                 if (path != null && path.endsWith(".ui") && !hasCustomInlineContent()) {
-                    HyUIPlugin.getLog().logFinest("Appending UI file: " + path + " to " + parentSelector);
+                    HyUIPlugin.getLog().logFinest("Appending UI file: %s to %s", path, parentSelector);
                     commands.append(parentSelector, path);
 
                     // If it's a file but NOT wrapped, we need to set the ID of the root element in that file
@@ -470,30 +697,30 @@ public abstract class UIElementBuilder<T extends UIElementBuilder<T>> {
                     }
                 } else if (hasCustomInlineContent()) {
                     String inline = generateCustomInlineContent();
-                    HyUIPlugin.getLog().logFinest("Appending custom inline: " + inline + " to " + parentSelector);
+                    HyUIPlugin.getLog().logFinest("Appending custom inline: %s to %s", inline, parentSelector);
                     commands.appendInline(parentSelector, inline);
                 } else {
                     String inline = generateBasicInlineMarkup();
-                    HyUIPlugin.getLog().logFinest("Appending inline: " + inline + " to " + parentSelector);
+                    HyUIPlugin.getLog().logFinest("Appending inline: %s to %s", inline, parentSelector);
                     commands.appendInline(parentSelector, inline);
                 }
             }
             
             if (anchor != null) {
-                HyUIPlugin.getLog().logFinest("Setting Anchor for " + selector);
+                HyUIPlugin.getLog().logFinest("Setting Anchor for %s", selector);
                 commands.setObject(selector + ".Anchor", anchor.toHytaleAnchor());
             }
 
             if (padding != null) {
                 if (!wrapInGroup) {
-                    HyUIPlugin.getLog().logFinest("Setting Padding for " + selector);
+                    HyUIPlugin.getLog().logFinest("Setting Padding for %s", selector);
                     if (padding.getLeft() != null) commands.set(selector + ".Padding.Left", padding.getLeft());
                     if (padding.getTop() != null) commands.set(selector + ".Padding.Top", padding.getTop());
                     if (padding.getRight() != null) commands.set(selector + ".Padding.Right", padding.getRight());
                     if (padding.getBottom() != null) commands.set(selector + ".Padding.Bottom", padding.getBottom());
                 } else if (updateOnly) {
                     String groupSelector = "#" + getWrappingGroupId();
-                    HyUIPlugin.getLog().logFinest("Setting Padding for " + groupSelector);
+                    HyUIPlugin.getLog().logFinest("Setting Padding for %s", groupSelector);
                     if (padding.getLeft() != null) commands.set(groupSelector + ".Padding.Left", padding.getLeft());
                     if (padding.getTop() != null) commands.set(groupSelector + ".Padding.Top", padding.getTop());
                     if (padding.getRight() != null) commands.set(groupSelector + ".Padding.Right", padding.getRight());
@@ -502,23 +729,23 @@ public abstract class UIElementBuilder<T extends UIElementBuilder<T>> {
             }
 
             if (visible != null) {
-                HyUIPlugin.getLog().logFinest("Setting Visible: " + visible + " for " + selector);
+                HyUIPlugin.getLog().logFinest("Setting Visible: %s for %s", visible, selector);
                 commands.set(selector + ".Visible", visible);
             }
 
             if (tooltipTextSpan != null) {
-                HyUIPlugin.getLog().logFinest("Setting TooltipTextSpans for " + selector);
+                HyUIPlugin.getLog().logFinest("Setting TooltipTextSpans for %s", selector);
                 commands.set(selector + ".TooltipTextSpans", tooltipTextSpan);
             }
 
             if (hitTestVisible != null) {
-                HyUIPlugin.getLog().logFinest("Setting HitTestVisible: " + hitTestVisible + " for " + selector);
+                HyUIPlugin.getLog().logFinest("Setting HitTestVisible: %s for %s", hitTestVisible, selector);
                 commands.set(selector + ".HitTestVisible", hitTestVisible);
             }
 
             if (flexWeight != null) {
                 String flexSelector = wrapInGroup ? "#" + getWrappingGroupId() : selector;
-                HyUIPlugin.getLog().logFinest("Setting FlexWeight: " + flexWeight + " for " + flexSelector);
+                HyUIPlugin.getLog().logFinest("Setting FlexWeight: %s for %s", flexWeight, flexSelector);
                 commands.set(flexSelector + ".FlexWeight", flexWeight);
             }
 
@@ -620,7 +847,7 @@ public abstract class UIElementBuilder<T extends UIElementBuilder<T>> {
      */
     protected void applyStyle(UICommandBuilder commands, String prefix, HyUIStyle style, BsonDocumentHelper doc) {
         if (style.getStyleReference() != null) {
-            HyUIPlugin.getLog().logFinest("Applying style reference: " + style.getStyleDocument() + " -> " + style.getStyleReference() + " to " + prefix);
+            HyUIPlugin.getLog().logFinest("Applying style reference: %s -> %s to %s", style.getStyleDocument(), style.getStyleReference(), prefix);
             commands.set(prefix, com.hypixel.hytale.server.core.ui.Value.ref(style.getStyleDocument(), style.getStyleReference()));
             return;
         }
@@ -636,51 +863,51 @@ public abstract class UIElementBuilder<T extends UIElementBuilder<T>> {
         };
         
         if (style.getFontSize() != null && isAllowed.test("FontSize")) {
-            HyUIPlugin.getLog().logFinest("Setting Style FontSize: " + style.getFontSize() + " for " + prefix);
+            HyUIPlugin.getLog().logFinest("Setting Style FontSize: %s for %s", style.getFontSize(), prefix);
             doc.set("FontSize", style.getFontSize().doubleValue());
         }
         if (style.getRenderBold() != null && isAllowed.test("RenderBold")) {
-            HyUIPlugin.getLog().logFinest("Setting Style RenderBold: " + style.getRenderBold() + " for " + prefix);
+            HyUIPlugin.getLog().logFinest("Setting Style RenderBold: %s for %s", style.getRenderBold(), prefix);
             doc.set("RenderBold", style.getRenderBold());
         }
         if (style.getRenderUppercase() != null && isAllowed.test("RenderUppercase")) {
-            HyUIPlugin.getLog().logFinest("Setting Style RenderUppercase: " + style.getRenderUppercase() + " for " + prefix);
+            HyUIPlugin.getLog().logFinest("Setting Style RenderUppercase: %s for %s", style.getRenderUppercase(), prefix);
             doc.set("RenderUppercase", style.getRenderUppercase());
         }
         if (style.getRenderItalics() != null && isAllowed.test("RenderItalics")) {
-            HyUIPlugin.getLog().logFinest("Setting Style RenderItalics: " + style.getRenderItalics() + " for " + prefix);
+            HyUIPlugin.getLog().logFinest("Setting Style RenderItalics: %s for %s", style.getRenderItalics(), prefix);
             doc.set("RenderItalics", style.getRenderItalics());
         }
         if (style.getTextColor() != null && isAllowed.test("TextColor")) {
-            HyUIPlugin.getLog().logFinest("Setting Style TextColor: " + style.getTextColor() + " for " + prefix);
+            HyUIPlugin.getLog().logFinest("Setting Style TextColor: %s for %s", style.getTextColor(), prefix);
             doc.set("TextColor", style.getTextColor());
         }
         if (style.getLetterSpacing() != null && isAllowed.test("LetterSpacing")) {
-            HyUIPlugin.getLog().logFinest("Setting Style LetterSpacing: " + style.getLetterSpacing() + " for " + prefix);
+            HyUIPlugin.getLog().logFinest("Setting Style LetterSpacing: %s for %s", style.getLetterSpacing(), prefix);
             doc.set("LetterSpacing", style.getLetterSpacing());
         }
         if (style.getWrap() != null && isAllowed.test("Wrap")) {
-            HyUIPlugin.getLog().logFinest("Setting Style Wrap: " + style.getWrap() + " for " + prefix);
+            HyUIPlugin.getLog().logFinest("Setting Style Wrap: %s for %s", style.getWrap(), prefix);
             doc.set("Wrap", style.getWrap());
         }
         if (style.getFontName() != null && isAllowed.test("FontName")) {
-            HyUIPlugin.getLog().logFinest("Setting Style FontName: " + style.getFontName() + " for " + prefix);
+            HyUIPlugin.getLog().logFinest("Setting Style FontName: %s for %s", style.getFontName(), prefix);
             doc.set("FontName", style.getFontName());
         }
         if (style.getOutlineColor() != null && isAllowed.test("OutlineColor")) {
-            HyUIPlugin.getLog().logFinest("Setting Style OutlineColor: " + style.getOutlineColor() + " for " + prefix);
+            HyUIPlugin.getLog().logFinest("Setting Style OutlineColor: %s for %s", style.getOutlineColor(), prefix);
             doc.set("OutlineColor", style.getOutlineColor());
         }
         if (style.getHorizontalAlignment() != null && isAllowed.test("HorizontalAlignment")) {
-            HyUIPlugin.getLog().logFinest("Setting Style HorizontalAlignment: " + style.getHorizontalAlignment() + " for " + prefix);
+            HyUIPlugin.getLog().logFinest("Setting Style HorizontalAlignment: %s for %s", style.getHorizontalAlignment(), prefix);
             doc.set("HorizontalAlignment", style.getHorizontalAlignment().name());
         }
         if (style.getVerticalAlignment() != null && isAllowed.test("VerticalAlignment")) {
-            HyUIPlugin.getLog().logFinest("Setting Style VerticalAlignment: " + style.getVerticalAlignment() + " for " + prefix);
+            HyUIPlugin.getLog().logFinest("Setting Style VerticalAlignment: %s for %s", style.getVerticalAlignment(), prefix);
             doc.set("VerticalAlignment", style.getVerticalAlignment().name());
         }
         if (style.getAlignment() != null && isAllowed.test("Alignment")) {
-            HyUIPlugin.getLog().logFinest("Setting Style Alignment: " + style.getAlignment() + " for " + prefix);
+            HyUIPlugin.getLog().logFinest("Setting Style Alignment: %s for %s", style.getAlignment(), prefix);
             doc.set("Alignment", style.getAlignment().name());
         }
     }
@@ -700,7 +927,7 @@ public abstract class UIElementBuilder<T extends UIElementBuilder<T>> {
                 return;
             }
             var fullPrefix = prefix + "." + key;
-            HyUIPlugin.getLog().logFinest("Setting Style Raw Property: " + key + "=" + value + " for " + prefix);
+            HyUIPlugin.getLog().logFinest("Setting Style Raw Property: %s=%s for %s", key, value, prefix);
             switch (value) {
                 case String s -> commands.set(fullPrefix, s);
                 case Boolean b -> commands.set(fullPrefix, b);
@@ -728,12 +955,76 @@ public abstract class UIElementBuilder<T extends UIElementBuilder<T>> {
     protected void buildChildren(UICommandBuilder commands, UIEventBuilder events, boolean updateOnly) {
         String selector = getSelector();
         if (selector != null) {
-            for (UIElementBuilder<?> child : children) {
+            buildChildUpdates(builtChildren, children, commands, updateOnly, (child, childUpdateOnly) -> {
                 String originalParent = child.parentSelector;
-                child.inside(selector).build(commands, events, updateOnly);
+                child.inside(selector).build(commands, events, childUpdateOnly);
                 child.inside(originalParent);
+            });
+            builtChildren = new ArrayList<>(children);
+        }
+    }
+
+    /**
+     * Builds a list of sibling elements, emitting structural commands when the list changed since it was
+     * last sent to the client.
+     * <p>
+     * Elements that are gone are removed, and elements that are in the same order as before only receive
+     * updates. From the first element that is new or out of place onwards, every element is removed (if it
+     * exists on the client) and appended again, so the client order matches. Full builds, and updates
+     * without a previous list, build every element as requested.
+     * </p>
+     *
+     * @param built      The elements in the order last sent to the client, or null.
+     * @param current    The elements to build, in order.
+     * @param commands   The command builder to emit removals into.
+     * @param updateOnly Whether this is an update of elements that already exist on the client.
+     * @param build      Builds one element, the flag tells whether it only needs updates.
+     */
+    static void buildChildUpdates(List<UIElementBuilder<?>> built, List<UIElementBuilder<?>> current,
+                                  UICommandBuilder commands, boolean updateOnly,
+                                  BiConsumer<UIElementBuilder<?>, Boolean> build) {
+        if (!updateOnly || built == null) {
+            for (UIElementBuilder<?> element : current) {
+                build.accept(element, updateOnly);
             }
+            return;
         }
+
+        Set<UIElementBuilder<?>> live = Collections.newSetFromMap(new IdentityHashMap<>());
+        live.addAll(current);
+        Set<UIElementBuilder<?>> existing = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<UIElementBuilder<?>> surviving = new ArrayList<>(built.size());
+        for (UIElementBuilder<?> element : built) {
+            if (live.contains(element)) {
+                surviving.add(element);
+                existing.add(element);
+            } else {
+                HyUIPlugin.getLog().logFinest("Removing element: %s", element.getRootSelector());
+                commands.remove(element.getRootSelector());
+            }
+        }
+
+        int stable = 0;
+        while (stable < current.size() && stable < surviving.size() && current.get(stable) == surviving.get(stable)) {
+            stable++;
+        }
+        for (int i = stable; i < current.size(); i++) {
+            UIElementBuilder<?> element = current.get(i);
+            if (existing.contains(element)) {
+                commands.remove(element.getRootSelector());
+            }
+        }
+
+        for (int i = 0; i < current.size(); i++) {
+            build.accept(current.get(i), i < stable);
+        }
+    }
+
+    /**
+     * @return The selector of the outermost client element created for this builder.
+     */
+    protected String getRootSelector() {
+        return "#" + (wrapInGroup ? getWrappingGroupId() : id);
     }
 
     private void executeBuild(UICommandBuilder commands, UIEventBuilder events, boolean updateOnly) {
@@ -52,7 +52,7 @@ public interface ScrollbarStyleSupported<T extends ScrollbarStyleSupported<T>> {
         String reference = getScrollbarStyleReference();
         String document = getScrollbarStyleDocument();
         if (reference != null && document != null && selector != null) {
-            HyUIPlugin.getLog().logFinest("Setting ScrollbarStyle reference for " + selector + " from " + document + ": " + reference);
+            HyUIPlugin.getLog().logFinest("Setting ScrollbarStyle reference for %s from %s: %s", selector, document, reference);
             commands.set(selector + ".ScrollbarStyle", Value.ref(document, reference));
         }
     }
@@ -13,7 +13,7 @@ import java.util.Optional;
  */
 public interface UIContext {
     /**
-     * Retrieves the list of logged UI commands.
+     * Retrieves the UI commands logged for the last build. Only filled in dev mode or with metrics on.
      * @return A list of strings representing the logged commands.
      */
     List<String> getCommandLog();
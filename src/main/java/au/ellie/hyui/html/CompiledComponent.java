@@ -0,0 +1,132 @@
+package au.ellie.hyui.html;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A registered component, compiled once when it is registered.
+ * <p>
+ * Components do not declare their parameters, so the parameter list is taken from the names the body
+ * reads: variables, each lists and keys, and condition operands. Each name gets a fixed slot, and an
+ * include binds its parameters into a slot array instead of a map. Include parameters the body never
+ * reads are not rendered at all.
+ * </p>
+ * A component that includes other components is open: the nested bodies can read any of its parameters
+ * through the scope chain, so every include parameter is bound by name.
+ */
+final class CompiledComponent {
+
+    private final String name;
+    private final CompiledTemplate template;
+    private final Map<String, Integer> slots;
+
+    private CompiledComponent(String name, CompiledTemplate template, Map<String, Integer> slots) {
+        this.name = name;
+        this.template = template;
+        this.slots = slots;
+    }
+
+    /**
+     * @param name   The component name.
+     * @param source The component template.
+     * @return The compiled component.
+     */
+    static CompiledComponent compile(String name, String source) {
+        CompiledTemplate template = TemplateCache.get(source);
+        Map<String, Integer> slots = new HashMap<>();
+        boolean open = collect(template.getNodes(), slots);
+        return new CompiledComponent(name, template, open ? null : Map.copyOf(slots));
+    }
+
+    String getName() {
+        return name;
+    }
+
+    CompiledTemplate getTemplate() {
+        return template;
+    }
+
+    /**
+     * @return true if include parameters must be bound by name, because nested components may read them.
+     */
+    boolean isOpen() {
+        return slots == null;
+    }
+
+    /**
+     * @return The slot of every parameter name the body reads. Only valid for closed components.
+     */
+    Map<String, Integer> getSlots() {
+        return slots;
+    }
+
+    /**
+     * @return An array with one unbound entry per slot.
+     */
+    Object[] newSlotValues() {
+        Object[] values = new Object[slots.size()];
+        Arrays.fill(values, TemplateScope.MISSING);
+        return values;
+    }
+
+    /**
+     * Collects the names read by the nodes into slots.
+     *
+     * @return true if the nodes include another component.
+     */
+    private static boolean collect(List<TemplateNode> nodes, Map<String, Integer> slots) {
+        boolean open = false;
+        for (TemplateNode node : nodes) {
+            switch (node) {
+                case TemplateNode.Text ignored -> {}
+                case TemplateNode.Variable variable -> addName(variable.name(), slots);
+                case TemplateNode.Each each -> {
+                    addName(each.listName(), slots);
+                    addName(each.key(), slots);
+                    open |= collect(each.body(), slots);
+                }
+                case TemplateNode.If ifBlock -> {
+                    collect(ifBlock.condition(), slots);
+                    open |= collect(ifBlock.whenTrue(), slots);
+                    open |= collect(ifBlock.whenFalse(), slots);
+                }
+                case TemplateNode.Component ignored -> open = true;
+            }
+        }
+        return open;
+    }
+
+    private static void collect(TemplateCondition condition, Map<String, Integer> slots) {
+        switch (condition) {
+            case TemplateCondition.Constant ignored -> {}
+            case TemplateCondition.Or or -> or.parts().forEach(part -> collect(part, slots));
+            case TemplateCondition.And and -> and.parts().forEach(part -> collect(part, slots));
+            case TemplateCondition.Not not -> collect(not.inner(), slots);
+            case TemplateCondition.Truthy truthy -> addName(truthy.operand().reference(), slots);
+            case TemplateCondition.Contains contains -> {
+                addName(contains.left().reference(), slots);
+                addName(contains.right().reference(), slots);
+            }
+            case TemplateCondition.Compare compare -> {
+                addName(compare.left().reference(), slots);
+                addName(compare.right().reference(), slots);
+            }
+        }
+    }
+
+    /**
+     * Adds a name and, for dot paths, its root, since a parameter can be read either way.
+     */
+    private static void addName(String name, Map<String, Integer> slots) {
+        if (name == null || name.isBlank()) {
+            return;
+        }
+        slots.putIfAbsent(name, slots.size());
+        int dotIndex = name.indexOf('.');
+        if (dotIndex > 0) {
+            slots.putIfAbsent(name.substring(0, dotIndex), slots.size());
+        }
+    }
+}
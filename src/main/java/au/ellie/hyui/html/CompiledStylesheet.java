@@ -0,0 +1,525 @@
+package au.ellie.hyui.html;
+
+import org.jsoup.nodes.Element;
+import org.jsoup.select.Evaluator;
+import org.jsoup.select.QueryParser;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The parsed rules of a page's {@code <style>} blocks, indexed for matching in a single document walk.
+ * <p>
+ * Each rule is filed under the most selective part of its subject (rightmost) compound selector: its id,
+ * else its first class, else its tag, else the universal bucket. An element is then only tested against
+ * the rules in its own id, class and tag buckets plus the universal ones. Selectors made of tags, ids,
+ * classes, attribute tests and the descendant, child and sibling combinators are matched directly;
+ * anything else (pseudo-classes and jsoup extensions) is kept as a fallback rule, parsed once into a jsoup
+ * evaluator that is tested against every element.
+ * </p>
+ * Matching rules are ordered by specificity, then by source order, so the more specific rule wins.
+ * Compiled stylesheets are immutable and cached by their CSS text.
+ */
+final class CompiledStylesheet {
+    private static final int MAX_CACHED = 64;
+
+    private static final Pattern COMMENT_PATTERN = Pattern.compile("//.*|/\\*([\\s\\S]*?)\\*/");
+    private static final Pattern RULE_PATTERN = Pattern.compile("(?s)\\s*([^{]+)\\s*\\{\\s*([^}]+)\\s*\\}");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private static final LinkedHashMap<String, CompiledStylesheet> CACHE = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CompiledStylesheet> eldest) {
+            return size() > MAX_CACHED;
+        }
+    };
+
+    static final Comparator<Rule> PRECEDENCE = Comparator.comparingInt(Rule::specificity).thenComparingInt(Rule::order);
+
+    /**
+     * A style rule for one selector.
+     *
+     * @param selector    The selector text, without a trailing {@code :hover}.
+     * @param compiled    The directly matchable selector, or null for a fallback rule.
+     * @param evaluator   The parsed jsoup selector of a fallback rule, or null.
+     * @param properties  The declarations, whitespace-normalised.
+     * @param declarations The declarations, parsed.
+     * @param hover       Whether the rule applies to the hover state.
+     * @param specificity The selector specificity, higher wins.
+     * @param order       The source position, later wins among equal specificity.
+     */
+    record Rule(String selector, CompiledSelector compiled, Evaluator evaluator, String properties,
+                StyleDeclarations declarations, boolean hover, int specificity, int order) {
+        boolean matches(Element element) {
+            return compiled.matches(element, compiled.compounds().size() - 1);
+        }
+    }
+
+    private final Map<String, List<Rule>> byId = new HashMap<>();
+    private final Map<String, List<Rule>> byClass = new HashMap<>();
+    private final Map<String, List<Rule>> byTag = new HashMap<>();
+    private final List<Rule> universal = new ArrayList<>();
+    private final List<Rule> fallback = new ArrayList<>();
+    private final Map<String, String> definitions = new LinkedHashMap<>();
+    private int ruleCount;
+
+    private CompiledStylesheet() {}
+
+    /**
+     * Returns the compiled form of the given style blocks, compiling them on first use.
+     *
+     * @param blocks The contents of each {@code <style>} block, in document order.
+     * @return The shared compiled stylesheet.
+     */
+    static CompiledStylesheet get(List<String> blocks) {
+        String key = String.join("\u0000", blocks);
+        synchronized (CACHE) {
+            CompiledStylesheet cached = CACHE.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        CompiledStylesheet compiled = compile(blocks);
+        synchronized (CACHE) {
+            CACHE.put(key, compiled);
+        }
+        return compiled;
+    }
+
+    /**
+     * @param blocks The contents of each {@code <style>} block, in document order.
+     * @return A new compiled stylesheet.
+     */
+    static CompiledStylesheet compile(List<String> blocks) {
+        CompiledStylesheet sheet = new CompiledStylesheet();
+        for (String block : blocks) {
+            sheet.parse(block);
+        }
+        return sheet;
+    }
+
+    /**
+     * @return The {@code @name} style definitions, by name.
+     */
+    Map<String, String> getDefinitions() {
+        return definitions;
+    }
+
+    /**
+     * @return The rules matched through their jsoup evaluator, see {@link Rule#evaluator()}.
+     */
+    List<Rule> getFallbackRules() {
+        return fallback;
+    }
+
+    /**
+     * Adds every indexed rule matching the element to {@code matches}. Fallback rules are not included.
+     */
+    void collectMatches(Element element, List<Rule> matches) {
+        String id = element.id();
+        if (!id.isEmpty()) {
+            collectMatches(byId.get(id), element, matches);
+        }
+        if (!byClass.isEmpty()) {
+            for (String className : element.classNames()) {
+                collectMatches(byClass.get(className.toLowerCase(Locale.ROOT)), element, matches);
+            }
+        }
+        collectMatches(byTag.get(element.normalName()), element, matches);
+        collectMatches(universal, element, matches);
+    }
+
+    private static void collectMatches(List<Rule> rules, Element element, List<Rule> matches) {
+        if (rules == null) {
+            return;
+        }
+        for (Rule rule : rules) {
+            if (rule.matches(element)) {
+                matches.add(rule);
+            }
+        }
+    }
+
+    private void parse(String css) {
+        Matcher matcher = RULE_PATTERN.matcher(COMMENT_PATTERN.matcher(css).replaceAll(""));
+        while (matcher.find()) {
+            String selectors = matcher.group(1).trim();
+            String properties = WHITESPACE.matcher(matcher.group(2).trim()).replaceAll(" ").trim();
+            for (String selector : selectors.split(",")) {
+                selector = selector.trim();
+                if (!selector.isEmpty()) {
+                    addRule(selector, properties);
+                }
+            }
+        }
+    }
+
+    private void addRule(String selector, String properties) {
+        if (selector.startsWith("@")) {
+            String name = selector.substring(1).trim();
+            if (!name.isEmpty()) {
+                // Repeated definitions append, like repeated rules.
+                definitions.merge(name, properties, (existing, added) ->
+                        existing + (existing.endsWith(";") ? "" : ";") + added);
+            }
+            return;
+        }
+
+        boolean hover = selector.endsWith(":hover");
+        if (hover) {
+            selector = selector.substring(0, selector.length() - ":hover".length());
+            if (selector.isEmpty()) {
+                selector = "*";
+            }
+        }
+
+        int order = ruleCount++;
+        CompiledSelector compiled = CompiledSelector.parse(selector);
+        if (compiled == null) {
+            Evaluator evaluator;
+            try {
+                evaluator = QueryParser.parse(selector);
+            } catch (RuntimeException e) {
+                // Invalid selectors are ignored.
+                return;
+            }
+            fallback.add(new Rule(selector, null, evaluator, properties, StyleDeclarations.of(properties), hover,
+                    specificity(selector), order));
+            return;
+        }
+
+        Rule rule = new Rule(selector, compiled, null, properties, StyleDeclarations.of(properties), hover,
+                specificity(selector), order);
+        Compound subject = compiled.compounds().get(compiled.compounds().size() - 1);
+        if (subject.id() != null) {
+            byId.computeIfAbsent(subject.id(), key -> new ArrayList<>()).add(rule);
+        } else if (!subject.classes().isEmpty()) {
+            byClass.computeIfAbsent(subject.classes().get(0), key -> new ArrayList<>()).add(rule);
+        } else if (subject.tag() != null) {
+            byTag.computeIfAbsent(subject.tag(), key -> new ArrayList<>()).add(rule);
+        } else {
+            universal.add(rule);
+        }
+    }
+
+    /**
+     * Computes the specificity as ids, then classes, attributes and pseudo-classes, then tags,
+     * packed into one comparable number.
+     */
+    static int specificity(String selector) {
+        int ids = 0;
+        int classes = 0;
+        int tags = 0;
+        boolean compoundStart = true;
+        int i = 0;
+        int length = selector.length();
+        while (i < length) {
+            char c = selector.charAt(i);
+            if (c == '#') {
+                ids++;
+                i = skipIdentifier(selector, i + 1);
+                compoundStart = false;
+            } else if (c == '.') {
+                classes++;
+                i = skipIdentifier(selector, i + 1);
+                compoundStart = false;
+            } else if (c == '[' || c == '(') {
+                if (c == '[') {
+                    classes++;
+                }
+                i = skipGroup(selector, i);
+                compoundStart = false;
+            } else if (c == ':') {
+                boolean element = i + 1 < length && selector.charAt(i + 1) == ':';
+                if (element) {
+                    tags++;
+                    i++;
+                } else {
+                    classes++;
+                }
+                i = skipIdentifier(selector, i + 1);
+                compoundStart = false;
+            } else if (Character.isWhitespace(c) || c == '>' || c == '+' || c == '~') {
+                compoundStart = true;
+                i++;
+            } else if (compoundStart && c != '*' && isIdentifierPart(c)) {
+                tags++;
+                i = skipIdentifier(selector, i);
+                compoundStart = false;
+            } else {
+                compoundStart = false;
+                i++;
+            }
+        }
+        return Math.min(ids, 99) * 10_000 + Math.min(classes, 99) * 100 + Math.min(tags, 99);
+    }
+
+    private static int skipIdentifier(String text, int from) {
+        int i = from;
+        while (i < text.length() && isIdentifierPart(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipGroup(String text, int from) {
+        char open = text.charAt(from);
+        char close = open == '[' ? ']' : ')';
+        int depth = 0;
+        for (int i = from; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == open) {
+                depth++;
+            } else if (c == close && --depth == 0) {
+                return i + 1;
+            }
+        }
+        return text.length();
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '-' || c == '_';
+    }
+
+    /**
+     * An attribute test, {@code [name]} or {@code [name op value]}, with jsoup's case-insensitive values.
+     *
+     * @param name     The lowercase attribute name.
+     * @param operator 0 for presence, or one of {@code = ^ $ *}.
+     * @param value    The lowercase value, or null for presence.
+     */
+    record AttributeTest(String name, char operator, String value) {
+        boolean matches(Element element) {
+            if (!element.hasAttr(name)) {
+                return false;
+            }
+            if (operator == 0) {
+                return true;
+            }
+            String actual = element.attr(name).toLowerCase(Locale.ROOT);
+            return switch (operator) {
+                case '=' -> actual.trim().equals(value);
+                case '^' -> actual.startsWith(value);
+                case '$' -> actual.endsWith(value);
+                default -> actual.contains(value);
+            };
+        }
+    }
+
+    /**
+     * A compound selector, such as {@code div#main.panel[data-x]}.
+     *
+     * @param tag        The lowercase tag name, or null for any.
+     * @param id         The id, or null.
+     * @param classes    The lowercase class names.
+     * @param attributes The attribute tests.
+     */
+    record Compound(String tag, String id, List<String> classes, List<AttributeTest> attributes) {
+        boolean matches(Element element) {
+            if (tag != null && !tag.equals(element.normalName())) {
+                return false;
+            }
+            if (id != null && !id.equals(element.id())) {
+                return false;
+            }
+            for (String className : classes) {
+                if (!element.hasClass(className)) {
+                    return false;
+                }
+            }
+            for (AttributeTest attribute : attributes) {
+                if (!attribute.matches(element)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * A selector of compounds joined by combinators, matched right to left.
+     *
+     * @param compounds   The compounds, leftmost first.
+     * @param combinators The combinator before each compound but the first: space, {@code >}, {@code +} or {@code ~}.
+     */
+    record CompiledSelector(List<Compound> compounds, List<Character> combinators) {
+
+        boolean matches(Element element, int index) {
+            if (!compounds.get(index).matches(element)) {
+                return false;
+            }
+            if (index == 0) {
+                return true;
+            }
+            switch (combinators.get(index - 1)) {
+                case '>' -> {
+                    Element parent = element.parent();
+                    return parent != null && matches(parent, index - 1);
+                }
+                case '+' -> {
+                    Element previous = element.previousElementSibling();
+                    return previous != null && matches(previous, index - 1);
+                }
+                case '~' -> {
+                    for (Element previous = element.previousElementSibling(); previous != null;
+                         previous = previous.previousElementSibling()) {
+                        if (matches(previous, index - 1)) {
+                            return true;
+                        }
+                    }
+                    return false;
+                }
+                default -> {
+                    for (Element parent = element.parent(); parent != null; parent = parent.parent()) {
+                        if (matches(parent, index - 1)) {
+                            return true;
+                        }
+                    }
+                    return false;
+                }
+            }
+        }
+
+        /**
+         * @return The parsed selector, or null if it uses anything beyond tags, ids, classes, simple attribute
+         * tests and combinators.
+         */
+        static CompiledSelector parse(String selector) {
+            List<Compound> compounds = new ArrayList<>();
+            List<Character> combinators = new ArrayList<>();
+            int[] position = {0};
+            int length = selector.length();
+            while (true) {
+                Compound compound = parseCompound(selector, position);
+                if (compound == null) {
+                    return null;
+                }
+                compounds.add(compound);
+
+                int i = position[0];
+                boolean whitespace = false;
+                while (i < length && Character.isWhitespace(selector.charAt(i))) {
+                    whitespace = true;
+                    i++;
+                }
+                if (i >= length) {
+                    break;
+                }
+                char combinator = selector.charAt(i);
+                if (combinator == '>' || combinator == '+' || combinator == '~') {
+                    i++;
+                    while (i < length && Character.isWhitespace(selector.charAt(i))) {
+                        i++;
+                    }
+                } else if (whitespace) {
+                    combinator = ' ';
+                } else {
+                    return null;
+                }
+                combinators.add(combinator);
+                position[0] = i;
+            }
+            return new CompiledSelector(List.copyOf(compounds), List.copyOf(combinators));
+        }
+
+        private static Compound parseCompound(String selector, int[] position) {
+            int length = selector.length();
+            int i = position[0];
+            String tag = null;
+            String id = null;
+            List<String> classes = new ArrayList<>();
+            List<AttributeTest> attributes = new ArrayList<>();
+            boolean empty = true;
+
+            if (i < length && selector.charAt(i) == '*') {
+                i++;
+                empty = false;
+            } else if (i < length && isIdentifierPart(selector.charAt(i))) {
+                int end = skipIdentifier(selector, i);
+                tag = selector.substring(i, end).toLowerCase(Locale.ROOT);
+                i = end;
+                empty = false;
+            }
+
+            while (i < length) {
+                char c = selector.charAt(i);
+                if (c == '#' || c == '.') {
+                    int end = skipIdentifier(selector, i + 1);
+                    if (end == i + 1 || (c == '#' && id != null)) {
+                        return null;
+                    }
+                    String name = selector.substring(i + 1, end);
+                    if (c == '#') {
+                        id = name;
+                    } else {
+                        classes.add(name.toLowerCase(Locale.ROOT));
+                    }
+                    i = end;
+                } else if (c == '[') {
+                    int end = selector.indexOf(']', i);
+                    if (end < 0) {
+                        return null;
+                    }
+                    AttributeTest attribute = parseAttribute(selector.substring(i + 1, end));
+                    if (attribute == null) {
+                        return null;
+                    }
+                    attributes.add(attribute);
+                    i = end + 1;
+                } else if (Character.isWhitespace(c) || c == '>' || c == '+' || c == '~') {
+                    break;
+                } else {
+                    return null;
+                }
+                empty = false;
+            }
+
+            if (empty) {
+                return null;
+            }
+            position[0] = i;
+            return new Compound(tag, id, List.copyOf(classes), List.copyOf(attributes));
+        }
+
+        private static AttributeTest parseAttribute(String text) {
+            String body = text.trim();
+            int end = skipIdentifier(body, 0);
+            if (end == 0) {
+                return null;
+            }
+            String name = body.substring(0, end).toLowerCase(Locale.ROOT);
+            String rest = body.substring(end).trim();
+            if (rest.isEmpty()) {
+                return new AttributeTest(name, (char) 0, null);
+            }
+
+            char operator;
+            if (rest.startsWith("=")) {
+                operator = '=';
+                rest = rest.substring(1);
+            } else if (rest.length() > 1 && rest.charAt(1) == '=' && "^$*".indexOf(rest.charAt(0)) >= 0) {
+                operator = rest.charAt(0);
+                rest = rest.substring(2);
+            } else {
+                return null;
+            }
+
+            String value = rest.trim();
+            if (value.length() >= 2 && (value.charAt(0) == '"' || value.charAt(0) == '\'')
+                    && value.charAt(value.length() - 1) == value.charAt(0)) {
+                value = value.substring(1, value.length() - 1);
+            }
+            if (value.isEmpty()) {
+                return null;
+            }
+            return new AttributeTest(name, operator, value.trim().toLowerCase(Locale.ROOT));
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package au.ellie.hyui.html;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An immutable, pre-parsed form of a HyUIML template.
+ * <p>
+ * Compiling scans the template source once and turns it into a tree of text, variable, each, if and
+ * component nodes. The result can then be rendered by a {@link TemplateProcessor} any number of times
+ * without re-scanning the raw string.
+ * </p>
+ */
+public final class CompiledTemplate {
+
+    // Matches {{$variable}} or {{$variable|default}} or {{$variable|filter}} at the current position.
+    private static final Pattern VARIABLE_PATTERN = Pattern.compile(
+            "\\{\\{\\$([a-zA-Z_][a-zA-Z0-9_]*(?:\\.[a-zA-Z_][a-zA-Z0-9_]*)*)(?:\\|([^}]*))?\\}\\}"
+    );
+
+    // Matches the "list key=expression" header of a keyed each block.
+    private static final Pattern KEYED_EACH_PATTERN = Pattern.compile("(.+?)\\s+key\\s*=\\s*(\\S+)");
+
+    private static final String EACH_START = "{{#each";
+    private static final String EACH_END = "{{/each}}";
+    private static final String IF_START = "{{#if";
+    private static final String IF_END = "{{/if}}";
+    private static final String ELSE_TAG = "{{else}}";
+    private static final String COMPONENT_START = "{{@";
+
+    private final String source;
+    private final List<TemplateNode> nodes;
+    private volatile TemplateLayout layout;
+
+    private CompiledTemplate(String source, List<TemplateNode> nodes) {
+        this.source = source;
+        this.nodes = nodes;
+    }
+
+    /**
+     * Compiles a template into its node tree.
+     *
+     * @param source The raw template source.
+     * @return The compiled template.
+     */
+    public static CompiledTemplate compile(String source) {
+        String text = source != null ? source : "";
+        return new CompiledTemplate(text, new Compiler(text).compileAll());
+    }
+
+    /**
+     * @return The raw template source this template was compiled from.
+     */
+    public String getSource() {
+        return source;
+    }
+
+    List<TemplateNode> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * @return The region layout of this template, computed on first use and shared by all users.
+     */
+    TemplateLayout getLayout() {
+        TemplateLayout current = layout;
+        if (current == null) {
+            // A concurrent duplicate computation is harmless, both results are equivalent.
+            current = TemplateLayout.of(this);
+            layout = current;
+        }
+        return current;
+    }
+
+    /**
+     * Single-pass recursive descent over the template source.
+     */
+    private static final class Compiler {
+        private final String template;
+        private final Matcher variableMatcher;
+        private int pos;
+        private String terminator;
+
+        private Compiler(String template) {
+            this.template = template;
+            this.variableMatcher = VARIABLE_PATTERN.matcher(template);
+        }
+
+        private List<TemplateNode> compileAll() {
+            List<TemplateNode> result = compileUntil(Set.of());
+            return List.copyOf(result);
+        }
+
+        /**
+         * Compiles nodes until one of the given closing tags is reached, or the end of the input.
+         * The closing tag that stopped compilation is left in {@link #terminator} (null at end of input).
+         */
+        private List<TemplateNode> compileUntil(Set<String> stopTags) {
+            List<TemplateNode> nodes = new ArrayList<>();
+            StringBuilder text = new StringBuilder();
+
+            while (pos < template.length()) {
+                int open = template.indexOf("{{", pos);
+                if (open < 0) {
+                    text.append(template, pos, template.length());
+                    pos = template.length();
+                    break;
+                }
+                text.append(template, pos, open);
+                pos = open;
+
+                String stop = matchStopTag(stopTags);
+                if (stop != null) {
+                    pos += stop.length();
+                    flushText(nodes, text);
+                    terminator = stop;
+                    return nodes;
+                }
+
+                TemplateNode node = null;
+                if (template.startsWith(EACH_START, pos)) {
+                    node = compileEach();
+                } else if (template.startsWith(IF_START, pos)) {
+                    node = compileIf();
+                } else if (template.startsWith(COMPONENT_START, pos)) {
+                    node = compileComponent();
+                } else if (template.startsWith("{{$", pos)) {
+                    node = compileVariable();
+                }
+
+                if (node != null) {
+                    flushText(nodes, text);
+                    nodes.add(node);
+                } else {
+                    // Not a recognised construct, keep the braces as literal text.
+                    text.append("{{");
+                    pos += 2;
+                }
+            }
+
+            flushText(nodes, text);
+            terminator = null;
+            return nodes;
+        }
+
+        private String matchStopTag(Set<String> stopTags) {
+            for (String tag : stopTags) {
+                if (template.startsWith(tag, pos)) {
+                    return tag;
+                }
+            }
+            return null;
+        }
+
+        private TemplateNode compileEach() {
+            int start = pos;
+            int headerClose = template.indexOf("}}", start);
+            if (headerClose < 0) {
+                return null;
+            }
+            String listName = template.substring(start + EACH_START.length(), headerClose).trim();
+            String key = null;
+            Matcher keyed = KEYED_EACH_PATTERN.matcher(listName);
+            if (keyed.matches()) {
+                listName = keyed.group(1).trim();
+                key = keyed.group(2);
+            }
+            pos = headerClose + 2;
+
+            List<TemplateNode> body = compileUntil(Set.of(EACH_END));
+            if (!EACH_END.equals(terminator)) {
+                // Unclosed block, treat the header as literal text and keep going.
+                pos = start;
+                return null;
+            }
+            return new TemplateNode.Each(listName, key, List.copyOf(body));
+        }
+
+        private TemplateNode compileIf() {
+            int start = pos;
+            int headerClose = template.indexOf("}}", start);
+            if (headerClose < 0) {
+                return null;
+            }
+            String condition = template.substring(start + IF_START.length(), headerClose).trim();
+            pos = headerClose + 2;
+
+            List<TemplateNode> whenTrue = compileUntil(Set.of(ELSE_TAG, IF_END));
+            List<TemplateNode> whenFalse = List.of();
+            if (ELSE_TAG.equals(terminator)) {
+                whenFalse = compileUntil(Set.of(IF_END));
+            }
+            if (!IF_END.equals(terminator)) {
+                pos = start;
+                return null;
+            }
+            return new TemplateNode.If(condition, TemplateCondition.parse(condition),
+                    List.copyOf(whenTrue), List.copyOf(whenFalse));
+        }
+
+        private TemplateNode compileComponent() {
+            int start = pos;
+            int cursor = start + COMPONENT_START.length();
+            int depth = 1;
+
+            while (cursor < template.length()) {
+                if (template.startsWith("{{", cursor)) {
+                    depth++;
+                    cursor += 2;
+                    continue;
+                }
+                if (template.startsWith("}}", cursor)) {
+                    depth--;
+                    if (depth == 0) {
+                        break;
+                    }
+                    cursor += 2;
+                    continue;
+                }
+                cursor++;
+            }
+
+            if (depth != 0) {
+                return null;
+            }
+
+            String content = template.substring(start + COMPONENT_START.length(), cursor).trim();
+            pos = cursor + 2;
+
+            String componentName;
+            String paramsStr = null;
+            int colonIndex = content.indexOf(':');
+            if (colonIndex >= 0) {
+                componentName = content.substring(0, colonIndex).trim();
+                paramsStr = content.substring(colonIndex + 1).trim();
+            } else {
+                componentName = content.trim();
+            }
+
+            List<TemplateNode.Param> params = new ArrayList<>();
+            if (paramsStr != null && !paramsStr.isEmpty()) {
+                for (String param : paramsStr.split(",")) {
+                    String[] parts = param.trim().split("=", 2);
+                    if (parts.length == 2) {
+                        String rawValue = parts[1].trim();
+                        List<TemplateNode> value = CompiledTemplate.compile(rawValue).getNodes();
+                        String constant = null;
+                        if (value.isEmpty()) {
+                            constant = "";
+                        } else if (value.size() == 1 && value.get(0) instanceof TemplateNode.Text text) {
+                            constant = text.text();
+                        }
+                        params.add(new TemplateNode.Param(parts[0].trim(), rawValue, value, constant));
+                    }
+                }
+            }
+            return new TemplateNode.Component(componentName, List.copyOf(params));
+        }
+
+        private TemplateNode compileVariable() {
+            variableMatcher.region(pos, template.length());
+            if (!variableMatcher.lookingAt()) {
+                return null;
+            }
+            String name = variableMatcher.group(1);
+            String pipe = variableMatcher.group(2);
+            pos = variableMatcher.end();
+
+            List<String> chain = List.of();
+            if (pipe != null && !pipe.isEmpty()) {
+                chain = List.of(pipe.split("\\|", -1));
+            }
+            return new TemplateNode.Variable(name, pipe, chain);
+        }
+
+        private void flushText(List<TemplateNode> nodes, StringBuilder text) {
+            if (text.isEmpty()) {
+                return;
+            }
+            nodes.add(new TemplateNode.Text(text.toString()));
+            text.setLength(0);
+        }
+    }
+}
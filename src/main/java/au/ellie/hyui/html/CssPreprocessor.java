@@ -4,99 +4,152 @@ import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
 
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 /**
  * Preprocesses HTML by extracting styles from &lt;style&gt; tags and applying them to elements.
+ * <p>
+ * The style blocks are compiled into a cached {@link CompiledStylesheet}, and the document is walked once,
+ * matching each element only against the rules indexed under its id, classes and tag. Matching rules are
+ * applied in specificity order, and the element's own style attribute still overrides them.
+ * </p>
+ * The combined declarations are written back as attribute text for handlers that read it. The merged
+ * {@link StyleDeclarations}, built from the rules' pre-parsed blocks, are attached to the element, so
+ * {@link TagHandler} uses them directly instead of parsing or looking up the text again.
  */
 public class CssPreprocessor {
+    private static final String DECLARATIONS_KEY = "hyui.style.";
+
+    // Declarations attached to an element, with the attribute text they were merged for.
+    private record Attached(String text, StyleDeclarations declarations) {}
+
+    /**
+     * Returns the declarations of a style attribute: the ones attached by the preprocessor if the
+     * attribute still holds the text they were merged for, otherwise the parsed attribute text.
+     *
+     * @param element   The element.
+     * @param attribute The style attribute, such as {@code style}.
+     * @return The declarations.
+     */
+    static StyleDeclarations declarations(Element element, String attribute) {
+        String text = element.attr(attribute);
+        if (element.attributes().userData(DECLARATIONS_KEY + attribute) instanceof Attached attached
+                && attached.text().equals(text)) {
+            return attached.declarations();
+        }
+        return StyleDeclarations.of(text);
+    }
 
     public void process(Document doc) {
         Elements styleElements = doc.getElementsByTag("style");
-        Map<String, String> cssRules = new HashMap<>();
+        if (styleElements.isEmpty()) {
+            return;
+        }
 
+        List<String> blocks = new ArrayList<>(styleElements.size());
         for (Element styleElement : styleElements) {
-            parseCss(styleElement.data(), cssRules);
+            blocks.add(styleElement.data());
             styleElement.remove();
         }
 
-        applyRules(doc, cssRules);
+        CompiledStylesheet stylesheet = CompiledStylesheet.get(blocks);
+        applyDefinitions(doc, stylesheet);
+        applyRules(doc, doc, stylesheet);
     }
 
-    private void parseCss(String css, Map<String, String> cssRules) {
-        // Remove comments
-        css = css.replaceAll("//.*|/\\*([\\s\\S]*?)\\*/", "");
-
-        // Updated regex to handle multi-line and different brace placements
-        // Use DOTALL (?s) to allow . to match newlines
-        Pattern pattern = Pattern.compile("(?s)\\s*([^{]+)\\s*\\{\\s*([^}]+)\\s*\\}");
-        Matcher matcher = pattern.matcher(css);
+    /**
+     * Publishes the stylesheet's {@code @name} definitions on the body, where handlers resolve them.
+     */
+    void applyDefinitions(Document doc, CompiledStylesheet stylesheet) {
+        for (Map.Entry<String, String> definition : stylesheet.getDefinitions().entrySet()) {
+            doc.body().attr("data-hyui-style-def-" + definition.getKey(), definition.getValue());
+        }
+    }
 
-        while (matcher.find()) {
-            String selectors = matcher.group(1).trim();
-            String properties = matcher.group(2).trim();
+    /**
+     * Applies the matching rules to the root and every element below it. Selectors are still matched
+     * against the whole document, so ancestors and earlier siblings outside the root count.
+     */
+    void applyRules(Document doc, Element root, CompiledStylesheet stylesheet) {
+        List<CompiledStylesheet.Rule> matches = new ArrayList<>();
+        for (Element element : root.getAllElements()) {
+            applyRules(doc, element, stylesheet, matches);
+        }
+    }
 
-            for (String selector : selectors.split(",")) {
-                selector = selector.trim();
-                if (!selector.isEmpty()) {
-                    // Normalize properties: replace newlines/tabs with spaces and trim
-                    String normalizedProperties = properties.replaceAll("\\s+", " ").trim();
+    /**
+     * Applies the matching rules to one element, without the elements below it.
+     */
+    void applyElementRules(Document doc, Element element, CompiledStylesheet stylesheet) {
+        applyRules(doc, element, stylesheet, new ArrayList<>());
+    }
 
-                    // If multiple rules for same selector, append properties
-                    String existing = cssRules.getOrDefault(selector, "");
-                    if (!existing.isEmpty() && !existing.endsWith(";")) {
-                        existing += ";";
-                    }
-                    cssRules.put(selector, existing + normalizedProperties);
-                }
+    private void applyRules(Document doc, Element element, CompiledStylesheet stylesheet,
+                            List<CompiledStylesheet.Rule> matches) {
+        matches.clear();
+        stylesheet.collectMatches(element, matches);
+        for (CompiledStylesheet.Rule rule : stylesheet.getFallbackRules()) {
+            if (matchesFallback(doc, element, rule)) {
+                matches.add(rule);
             }
         }
+        if (matches.isEmpty()) {
+            return;
+        }
+        if (matches.size() > 1) {
+            matches.sort(CompiledStylesheet.PRECEDENCE);
+        }
+        applyMatches(element, matches, false, "style");
+        applyMatches(element, matches, true, "data-hyui-hover-style");
     }
 
-    private void applyRules(Document doc, Map<String, String> cssRules) {
-        for (Map.Entry<String, String> entry : cssRules.entrySet()) {
-            String selector = entry.getKey();
-            String properties = entry.getValue();
-
-            try {
-                if (selector.startsWith("@")) {
-                    String name = selector.substring(1).trim();
-                    if (!name.isEmpty()) {
-                        doc.body().attr("data-hyui-style-def-" + name, properties);
-                    }
-                    continue;
-                }
-
-                // Handle :hover pseudo-class
-                if (selector.endsWith(":hover")) {
-                    String baseSelector = selector.substring(0, selector.length() - 6);
-                    Elements elements = doc.select(baseSelector.isEmpty() ? "*" : baseSelector);
-                    for (Element element : elements) {
-                        String existingHover = element.attr("data-hyui-hover-style");
-                        if (!existingHover.isEmpty() && !existingHover.endsWith(";")) {
-                            existingHover += ";";
-                        }
-                        element.attr("data-hyui-hover-style", properties + (properties.endsWith(";") ? "" : ";") + existingHover);
-                    }
-                    continue;
-                }
+    /**
+     * Tests a rule the stylesheet cannot match itself through its parsed jsoup selector.
+     */
+    private boolean matchesFallback(Document doc, Element element, CompiledStylesheet.Rule rule) {
+        try {
+            return rule.evaluator().matches(doc, element);
+        } catch (Exception ignored) {
+            // Ignore selectors jsoup fails to evaluate
+            return false;
+        }
+    }
 
-                Elements elements = doc.select(selector);
-                for (Element element : elements) {
-                    String existingStyle = element.attr("style");
-                    if (!existingStyle.isEmpty() && !existingStyle.endsWith(";")) {
-                        existingStyle += ";";
-                    }
-                    // CSS properties from style attribute should override CSS rules (specificity)
-                    // So we prepend the CSS rules to the existing style
-                    element.attr("style", properties + (properties.endsWith(";") ? "" : ";") + existingStyle);
-                }
-            } catch (Exception ignored) {
-                // Ignore invalid selectors
+    /**
+     * Writes the declarations of the matching rules in precedence order, followed by the element's own
+     * value of the attribute, so later (more specific) declarations override earlier ones.
+     */
+    private void applyMatches(Element element, List<CompiledStylesheet.Rule> matches, boolean hover, String attribute) {
+        StringBuilder style = null;
+        List<StyleDeclarations> blocks = null;
+        for (CompiledStylesheet.Rule rule : matches) {
+            if (rule.hover() != hover) {
+                continue;
+            }
+            if (style == null) {
+                style = new StringBuilder();
+                blocks = new ArrayList<>(matches.size() + 1);
+            }
+            String properties = rule.properties();
+            style.append(properties);
+            if (!properties.endsWith(";")) {
+                style.append(';');
             }
+            blocks.add(rule.declarations());
+        }
+        if (style == null) {
+            return;
+        }
+        String existing = element.attr(attribute);
+        style.append(existing);
+        if (!existing.isEmpty() && !existing.endsWith(";")) {
+            style.append(';');
         }
+        String text = style.toString();
+        blocks.add(StyleDeclarations.of(existing));
+        element.attr(attribute, text);
+        element.attributes().userData(DECLARATIONS_KEY + attribute, new Attached(text, StyleDeclarations.merge(blocks)));
     }
 }
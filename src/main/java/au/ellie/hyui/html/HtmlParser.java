@@ -4,6 +4,7 @@ import au.ellie.hyui.HyUIPlugin;
 import au.ellie.hyui.builders.LabelBuilder;
 import au.ellie.hyui.builders.InterfaceBuilder;
 import au.ellie.hyui.builders.UIElementBuilder;
+import au.ellie.hyui.events.UIContext;
 import au.ellie.hyui.html.handlers.*;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
@@ -12,42 +13,96 @@ import org.jsoup.nodes.Node;
 import org.jsoup.nodes.TextNode;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * A modular parser that converts HTML/XML-like language to HyUI builders.
  */
 public class HtmlParser {
     private final List<TagHandler> handlers = new ArrayList<>();
+    // Handlers to try per lowercase tag name, in registration order. Rebuilt after a handler is registered.
+    private Map<String, List<Route>> dispatchTable;
+    // Handlers to try for tags no handler claims, only the predicate-based ones.
+    private List<Route> fallbackRoutes;
     private TemplateProcessor templateProcessor;
+    private boolean streaming;
+    // Builders of elements the streaming parser already handled, set while it parses.
+    private Map<Element, UIElementBuilder<?>> prebuilt;
+
+    private record Route(TagHandler handler, Set<String> classNames) {
+        boolean claims(Element element) {
+            if (classNames.isEmpty()) {
+                return true;
+            }
+            for (String className : classNames) {
+                if (element.hasClass(className)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
     
     public HtmlParser() {
         // Register default handlers
-        registerHandler(new ItemGridHandler());
-        registerHandler(new TabContentHandler());
-        registerHandler(new DivHandler());
-        registerHandler(new LabelHandler());
-        registerHandler(new InputHandler());
-        registerHandler(new TextAreaHandler());
-        registerHandler(new ButtonHandler());
-        registerHandler(new ImgHandler());
-        registerHandler(new HyvatarHandler());
-        registerHandler(new ProgressBarHandler());
-        registerHandler(new ItemIconHandler());
-        registerHandler(new ItemSlotHandler());
-        registerHandler(new SelectHandler());
-        registerHandler(new SpriteHandler());
-        registerHandler(new TimerHandler());
-        registerHandler(new TabNavigationHandler());
+        addHandler(new ItemGridHandler());
+        addHandler(new TabContentHandler());
+        addHandler(new DivHandler());
+        addHandler(new LabelHandler());
+        addHandler(new InputHandler());
+        addHandler(new TextAreaHandler());
+        addHandler(new ButtonHandler());
+        addHandler(new ImgHandler());
+        addHandler(new HyvatarHandler());
+        addHandler(new ProgressBarHandler());
+        addHandler(new ItemIconHandler());
+        addHandler(new ItemSlotHandler());
+        addHandler(new SelectHandler());
+        addHandler(new SpriteHandler());
+        addHandler(new TimerHandler());
+        addHandler(new TabNavigationHandler());
     }
 
     /**
-     * Registers a new tag handler.
+     * Registers a new tag handler. Handlers are tried in registration order, so a handler claiming a tag
+     * that an earlier handler claims without class restrictions only sees the elements the earlier one
+     * declines. A handler that is hidden this way is reported when it is registered.
      *
      * @param handler The handler to register.
      */
     public void registerHandler(TagHandler handler) {
+        if (handler.getClassNames().isEmpty()) {
+            for (String tagName : handler.getTagNames()) {
+                TagHandler earlier = claimingHandler(tagName);
+                if (earlier != null) {
+                    HyUIPlugin.getLog().logWarning("Handler %s claims <%s>, which %s registered earlier claims entirely;"
+                            + " it only sees elements that handler declines",
+                            handler.getClass().getSimpleName(), tagName, earlier.getClass().getSimpleName());
+                }
+            }
+        }
+        addHandler(handler);
+    }
+
+    /**
+     * @return The registered handler claiming every element with the tag, or null if there is none.
+     */
+    private TagHandler claimingHandler(String tagName) {
+        for (TagHandler earlier : handlers) {
+            if (earlier.getClassNames().isEmpty() && earlier.getTagNames().contains(tagName)) {
+                return earlier;
+            }
+        }
+        return null;
+    }
+
+    private void addHandler(TagHandler handler) {
         handlers.add(handler);
+        dispatchTable = null;
     }
 
     /**
@@ -67,6 +122,22 @@ public class HtmlParser {
     public TemplateProcessor getTemplateProcessor() {
         return templateProcessor;
     }
+
+    /**
+     * Enables the streaming parse mode. Elements are handled while the markup is tokenised and released
+     * right after, instead of the whole document being built first, which lowers peak memory for large
+     * generated pages. Markup that needs the whole document, such as tab navigation or a
+     * {@code <style>} block after content, is still parsed as a full document.
+     *
+     * @param streaming true to stream.
+     */
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    public boolean isStreaming() {
+        return streaming;
+    }
     
     /**
      * Parses the HTML string and adds elements to the InterfaceBuilder.
@@ -88,15 +159,69 @@ public class HtmlParser {
      * @return A list of UIElementBuilders.
      */
     public List<UIElementBuilder<?>> parse(String html) {
-        // Apply template processing if a processor is set
-        String processedHtml = html;
-        if (templateProcessor != null) {
-            processedHtml = templateProcessor.process(html);
-            HyUIPlugin.getLog().logFinest("Processed template: " + processedHtml);
+        if (templateProcessor == null) {
+            return parseDocument(html);
         }
-        Document doc = Jsoup.parseBodyFragment(processedHtml);
+        // Render straight into a pooled buffer, the output is only materialised once for Jsoup.
+        StringBuilder processed = RenderBuffers.acquire(html.length());
+        try {
+            templateProcessor.processTo(templateProcessor.compile(html), processed);
+            return parseProcessed(processed);
+        } finally {
+            RenderBuffers.release(processed);
+        }
+    }
+
+    /**
+     * Processes the template with the current template processor, resolving element IDs
+     * through the UI context, and parses the result into a list of UIElementBuilders.
+     *
+     * @param html    The HTML template to parse.
+     * @param context The UI context for runtime values.
+     * @return A list of UIElementBuilders.
+     */
+    public List<UIElementBuilder<?>> parse(String html, UIContext context) {
+        return parse(html, context, null);
+    }
+
+    /**
+     * Processes and parses the template like {@link #parse(String, UIContext)}, recording the inputs
+     * the render read into the trace, see {@link TemplateProcessor#isCurrent(String, RenderTrace, UIContext)}.
+     *
+     * @param html    The HTML template to parse.
+     * @param context The UI context for runtime values.
+     * @param trace   The trace to record into, or null.
+     * @return A list of UIElementBuilders.
+     */
+    public List<UIElementBuilder<?>> parse(String html, UIContext context, RenderTrace trace) {
+        if (templateProcessor == null) {
+            return parseDocument(html);
+        }
+        StringBuilder processed = RenderBuffers.acquire(html.length());
+        try {
+            templateProcessor.processTo(templateProcessor.compile(html), context, processed, trace);
+            return parseProcessed(processed);
+        } finally {
+            RenderBuffers.release(processed);
+        }
+    }
+
+    private List<UIElementBuilder<?>> parseProcessed(StringBuilder processed) {
+        String processedHtml = processed.toString();
+        HyUIPlugin.getLog().logFinest("Processed template: %s", processedHtml);
+        return parseDocument(processedHtml);
+    }
+
+    private List<UIElementBuilder<?>> parseDocument(String html) {
+        if (streaming) {
+            List<UIElementBuilder<?>> streamed = new StreamingDocumentParser(this).parse(html);
+            if (streamed != null) {
+                return streamed;
+            }
+        }
+        Document doc = Jsoup.parseBodyFragment(html);
         new CssPreprocessor().process(doc);
-        HyUIPlugin.getLog().logFinest("Document elements after preprocessing: " + doc.body().html());
+        HyUIPlugin.getLog().logFinest(() -> "Document elements after preprocessing: " + doc.body().html());
         return parseChildren(doc.body());
     }
 
@@ -109,14 +234,14 @@ public class HtmlParser {
     public List<UIElementBuilder<?>> parseChildren(Element parent) {
         List<UIElementBuilder<?>> builders = new ArrayList<>();
         for (Node child : parent.childNodes()) {
-            HyUIPlugin.getLog().logFinest("Parsing child node: " + child.nodeName());
+            HyUIPlugin.getLog().logFinest("Parsing child node: %s", child.nodeName());
             
             if (child instanceof Element) {
-                HyUIPlugin.getLog().logFinest("Parsing ELEMENT node: " + child.nodeName());
+                HyUIPlugin.getLog().logFinest("Parsing ELEMENT node: %s", child.nodeName());
                 
                 UIElementBuilder<?> builder = handleElement((Element) child);
                 if (builder != null) {
-                    HyUIPlugin.getLog().logFinest("Parsed element: " + builder.getClass().getSimpleName());
+                    HyUIPlugin.getLog().logFinest("Parsed element: %s", builder.getClass().getSimpleName());
                     builders.add(builder);
                 }
             } else if (child instanceof TextNode) {
@@ -130,11 +255,66 @@ public class HtmlParser {
     }
 
     public UIElementBuilder<?> handleElement(Element element) {
-        for (TagHandler handler : handlers) {
-            if (handler.canHandle(element)) {
-                return handler.handle(element, this);
+        if (prebuilt != null && prebuilt.containsKey(element)) {
+            return prebuilt.remove(element);
+        }
+        TagHandler handler = findHandler(element);
+        return handler != null ? handler.handle(element, this) : null;
+    }
+
+    /**
+     * @return The handler {@link #handleElement} dispatches the element to, or null if none handles it.
+     */
+    TagHandler findHandler(Element element) {
+        if (dispatchTable == null) {
+            buildDispatchTable();
+        }
+        List<Route> routes = dispatchTable.getOrDefault(element.normalName(), fallbackRoutes);
+        for (Route route : routes) {
+            if (route.claims(element) && route.handler().canHandle(element)) {
+                return route.handler();
             }
         }
         return null;
     }
+
+    /**
+     * Sets the builders {@link #handleElement} returns instead of handling their element again.
+     *
+     * @param prebuilt The builders by element, or null.
+     */
+    void setPrebuilt(Map<Element, UIElementBuilder<?>> prebuilt) {
+        this.prebuilt = prebuilt;
+    }
+
+    /**
+     * Indexes the handlers by the tags they claim. Each tag gets the handlers claiming it plus the
+     * predicate-based ones, in registration order, so dispatch picks the same handler a scan over all
+     * handlers would.
+     */
+    private void buildDispatchTable() {
+        Map<String, List<Route>> table = new HashMap<>();
+        List<Route> fallback = new ArrayList<>();
+        for (TagHandler handler : handlers) {
+            for (String tagName : handler.getTagNames()) {
+                table.putIfAbsent(tagName.toLowerCase(Locale.ROOT), new ArrayList<>());
+            }
+        }
+        for (TagHandler handler : handlers) {
+            Route route = new Route(handler, handler.getClassNames());
+            Set<String> tagNames = handler.getTagNames();
+            if (tagNames.isEmpty()) {
+                fallback.add(route);
+                table.values().forEach(routes -> routes.add(route));
+                continue;
+            }
+            for (String tagName : tagNames) {
+                table.get(tagName.toLowerCase(Locale.ROOT)).add(route);
+            }
+        }
+        this.fallbackRoutes = List.copyOf(fallback);
+        Map<String, List<Route>> frozen = new HashMap<>();
+        table.forEach((tagName, routes) -> frozen.put(tagName, List.copyOf(routes)));
+        this.dispatchTable = frozen;
+    }
 }
@@ -0,0 +1,147 @@
+package au.ellie.hyui.html;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Per-class cache of template property getters.
+ * <p>
+ * The first time a model class is seen, its public fields, public getters, declared fields and declared
+ * getters are resolved once (in that priority order) into {@link MethodHandle}s. Later lookups are a
+ * single map access, with no reflection or {@code setAccessible} calls per item.
+ * </p>
+ */
+final class PropertyAccessors {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+
+    private static final ClassValue<Map<String, Accessor>> ACCESSORS = new ClassValue<>() {
+        @Override
+        protected Map<String, Accessor> computeValue(Class<?> type) {
+            return resolve(type);
+        }
+    };
+
+    private PropertyAccessors() {}
+
+    /**
+     * A cached getter for one property of a model class.
+     */
+    record Accessor(String name, MethodHandle getter) {
+        /**
+         * @param target The model instance.
+         * @return The property value, or null if the getter throws.
+         */
+        Object get(Object target) {
+            try {
+                return getter.invokeExact(target);
+            } catch (Throwable ignored) {
+                // Treat getters that throw as having no value.
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Finds the accessor for a property of the given class.
+     *
+     * @param type The model class.
+     * @param name The property name.
+     * @return The accessor, or null if the class has no such property.
+     */
+    static Accessor find(Class<?> type, String name) {
+        Map<String, Accessor> accessors = ACCESSORS.get(type);
+        Accessor accessor = accessors.get(name);
+        if (accessor == null && !name.isEmpty() && Character.isUpperCase(name.charAt(0))) {
+            accessor = accessors.get(decapitalize(name));
+        }
+        return accessor;
+    }
+
+    /**
+     * @param type The model class.
+     * @return Every accessible property of the class, keyed by property name.
+     */
+    static Map<String, Accessor> all(Class<?> type) {
+        return ACCESSORS.get(type);
+    }
+
+    private static Map<String, Accessor> resolve(Class<?> type) {
+        Map<String, Accessor> accessors = new LinkedHashMap<>();
+
+        for (Field field : type.getFields()) {
+            addField(accessors, field);
+        }
+        for (Method method : type.getMethods()) {
+            addGetter(accessors, method);
+        }
+        for (Field field : type.getDeclaredFields()) {
+            if (!field.isSynthetic()) {
+                addField(accessors, field);
+            }
+        }
+        for (Method method : type.getDeclaredMethods()) {
+            addGetter(accessors, method);
+        }
+
+        return Collections.unmodifiableMap(accessors);
+    }
+
+    private static void addField(Map<String, Accessor> accessors, Field field) {
+        if (Modifier.isStatic(field.getModifiers()) || accessors.containsKey(field.getName())) {
+            return;
+        }
+        try {
+            field.trySetAccessible();
+            MethodHandle getter = LOOKUP.unreflectGetter(field).asType(GETTER_TYPE);
+            accessors.put(field.getName(), new Accessor(field.getName(), getter));
+        } catch (IllegalAccessException | RuntimeException ignored) {
+            // Skip inaccessible fields.
+        }
+    }
+
+    private static void addGetter(Map<String, Accessor> accessors, Method method) {
+        if (method.getParameterCount() != 0
+                || Modifier.isStatic(method.getModifiers())
+                || method.getReturnType() == void.class
+                || method.getName().equals("getClass")) {
+            return;
+        }
+
+        String name = method.getName();
+        String propName = null;
+        if (name.startsWith("get") && name.length() > 3) {
+            propName = decapitalize(name.substring(3));
+        } else if (name.startsWith("is") && name.length() > 2) {
+            propName = decapitalize(name.substring(2));
+        }
+        if (propName == null || accessors.containsKey(propName)) {
+            return;
+        }
+
+        try {
+            method.trySetAccessible();
+            MethodHandle getter = LOOKUP.unreflect(method).asType(GETTER_TYPE);
+            accessors.put(propName, new Accessor(propName, getter));
+        } catch (IllegalAccessException | RuntimeException ignored) {
+            // Skip inaccessible getters.
+        }
+    }
+
+    static String decapitalize(String value) {
+        if (value == null || value.isEmpty()) {
+            return value;
+        }
+        if (value.length() > 1 && Character.isUpperCase(value.charAt(0)) && Character.isUpperCase(value.charAt(1))) {
+            return value;
+        }
+        return Character.toLowerCase(value.charAt(0)) + value.substring(1);
+    }
+}
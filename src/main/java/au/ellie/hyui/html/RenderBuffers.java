@@ -0,0 +1,48 @@
+package au.ellie.hyui.html;
+
+/**
+ * Per-thread pool of {@link StringBuilder}s used as template render targets.
+ * <p>
+ * A refresh renders the whole template on every tick, so reusing one grown buffer per thread avoids
+ * reallocating and re-growing a builder the size of the output each time. Nested renders on the same
+ * thread get a fresh builder. Buffers that grew past {@link #MAX_RETAINED_CAPACITY} are not kept.
+ * </p>
+ */
+final class RenderBuffers {
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final int MAX_RETAINED_CAPACITY = 256 * 1024;
+
+    private static final ThreadLocal<StringBuilder> POOL = new ThreadLocal<>();
+
+    private RenderBuffers() {}
+
+    /**
+     * Takes this thread's pooled builder, or a new one if it is already in use.
+     *
+     * @param expectedLength A sizing hint for the output.
+     * @return An empty builder, to be handed back with {@link #release(StringBuilder)}.
+     */
+    static StringBuilder acquire(int expectedLength) {
+        StringBuilder builder = POOL.get();
+        if (builder == null) {
+            return new StringBuilder(Math.max(INITIAL_CAPACITY, expectedLength));
+        }
+        POOL.remove();
+        builder.setLength(0);
+        builder.ensureCapacity(expectedLength);
+        return builder;
+    }
+
+    /**
+     * Returns a builder to this thread's pool.
+     *
+     * @param builder The builder obtained from {@link #acquire(int)}.
+     */
+    static void release(StringBuilder builder) {
+        if (builder.capacity() > MAX_RETAINED_CAPACITY) {
+            return;
+        }
+        builder.setLength(0);
+        POOL.set(builder);
+    }
+}
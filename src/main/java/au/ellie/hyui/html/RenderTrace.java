@@ -0,0 +1,133 @@
+package au.ellie.hyui.html;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * Records the inputs a template render actually read, so the render can be skipped when none of them changed.
+ * <p>
+ * A trace holds every root variable, dynamic (element) value, {@code {{#each}}} item property and dot-path
+ * property that the render looked up, together with the value it saw. Collections, maps and arrays are
+ * snapshotted shallowly, so adding or removing entries in place is detected; properties of the entries are
+ * recorded as separate reads. Pass a trace to
+ * {@link TemplateProcessor#processTo(CompiledTemplate, au.ellie.hyui.events.UIContext, Appendable, RenderTrace)}
+ * and check it with {@link TemplateProcessor#isCurrent(CompiledTemplate, RenderTrace, au.ellie.hyui.events.UIContext)}.
+ * </p>
+ */
+public final class RenderTrace {
+
+    enum Kind {
+        VARIABLE, DYNAMIC, ITEM, PROPERTY
+    }
+
+    record Read(Kind kind, Object target, String name, Object snapshot) {}
+
+    private final List<Read> reads = new ArrayList<>();
+    private final Set<String> seenVariables = new HashSet<>();
+    private final Set<String> seenDynamic = new HashSet<>();
+    private TemplateProcessor processor;
+    private int processorVersion;
+    private CompiledTemplate template;
+    private boolean complete;
+
+    /**
+     * Clears the trace and marks it as recording a render of the given template.
+     */
+    void begin(TemplateProcessor processor, int processorVersion, CompiledTemplate template) {
+        reads.clear();
+        seenVariables.clear();
+        seenDynamic.clear();
+        this.processor = processor;
+        this.processorVersion = processorVersion;
+        this.template = template;
+        this.complete = false;
+    }
+
+    /**
+     * Marks the recorded render as finished. A trace of a render that threw is never current.
+     */
+    void end() {
+        this.complete = true;
+    }
+
+    /**
+     * Discards the recorded render, so the next check always reports a change.
+     */
+    public void invalidate() {
+        reads.clear();
+        seenVariables.clear();
+        seenDynamic.clear();
+        this.processor = null;
+        this.template = null;
+        this.complete = false;
+    }
+
+    /**
+     * @return The number of recorded reads.
+     */
+    public int size() {
+        return reads.size();
+    }
+
+    boolean matches(TemplateProcessor processor, int processorVersion, CompiledTemplate template) {
+        return complete && this.processor == processor && this.processorVersion == processorVersion
+                && this.template == template;
+    }
+
+    List<Read> reads() {
+        return reads;
+    }
+
+    void recordVariable(String name, Object value) {
+        // Root variables and dynamic values cannot change during a render, so only the first read matters.
+        if (seenVariables.add(name)) {
+            reads.add(new Read(Kind.VARIABLE, null, name, snapshot(value)));
+        }
+    }
+
+    void recordDynamic(String name, Object value) {
+        if (seenDynamic.add(name)) {
+            reads.add(new Read(Kind.DYNAMIC, null, name, snapshot(value)));
+        }
+    }
+
+    void recordItem(Object item, String name, Object value) {
+        reads.add(new Read(Kind.ITEM, item, name, snapshot(value)));
+    }
+
+    void recordProperty(Object target, String name, Object value) {
+        reads.add(new Read(Kind.PROPERTY, target, name, snapshot(value)));
+    }
+
+    /**
+     * @return true if the current value equals the value seen while recording.
+     */
+    static boolean same(Read read, Object current) {
+        return Objects.equals(read.snapshot(), snapshot(current));
+    }
+
+    private static Object snapshot(Object value) {
+        if (value instanceof Collection<?> collection) {
+            return new ArrayList<>(collection);
+        }
+        if (value instanceof Map<?, ?> map) {
+            return new LinkedHashMap<>(map);
+        }
+        if (value != null && value.getClass().isArray()) {
+            int length = Array.getLength(value);
+            List<Object> elements = new ArrayList<>(length);
+            for (int i = 0; i < length; i++) {
+                elements.add(Array.get(value, i));
+            }
+            return elements;
+        }
+        return value;
+    }
+}
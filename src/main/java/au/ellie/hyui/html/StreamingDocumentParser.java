@@ -0,0 +1,203 @@
+package au.ellie.hyui.html;
+
+import au.ellie.hyui.HyUIPlugin;
+import au.ellie.hyui.builders.LabelBuilder;
+import au.ellie.hyui.builders.UIElementBuilder;
+import au.ellie.hyui.html.handlers.DivHandler;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.nodes.TextNode;
+import org.jsoup.parser.Parser;
+import org.jsoup.parser.StreamParser;
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Parses HYUIML into builders while it is being tokenised, instead of building the whole document first.
+ * <p>
+ * Elements are emitted by the stream as soon as their end tag is seen, and each one is styled with the
+ * {@code <style>} rules seen so far. A completed element whose parent is a div, or the title or contents
+ * of a container, is handed to the {@link TagHandler}s right away and then emptied: the div handler gets
+ * its builder back when it handles the parent. Top-level elements are handled and emptied the same way.
+ * Only the elements still open, and the content of elements whose handlers read their children
+ * themselves, are held as a DOM next to the builders. Emptied elements keep their tag and attributes, so
+ * sibling selectors of later elements still match.
+ * </p>
+ * <p>
+ * Rules the stylesheet resolves through jsoup, such as {@code :last-child}, may depend on elements that
+ * were not read yet. With such rules, elements are only styled and handled once their top-level element
+ * is complete.
+ * </p>
+ * <p>
+ * Markup that needs the whole document cannot be streamed: tab navigation updates content elements
+ * elsewhere in the document, and a {@code <style>} block after content would restyle elements that were
+ * already handled. In those cases {@link #parse} returns null and the caller parses the full document.
+ * </p>
+ */
+final class StreamingDocumentParser {
+    private static final Pattern NEEDS_DOCUMENT = Pattern.compile(
+            "<nav\\b|\\bclass\\s*=\\s*[\"']?[^\"'>]*?(?<![\\w-])(?:tabs|tab-navigation)(?![\\w-])",
+            Pattern.CASE_INSENSITIVE);
+
+    private final HtmlParser parser;
+    private final CssPreprocessor preprocessor = new CssPreprocessor();
+    private final List<String> styleBlocks = new ArrayList<>();
+    private final List<UIElementBuilder<?>> builders = new ArrayList<>();
+    // Builders of the emptied elements below the top level, until their parent is handled.
+    private final Map<Element, UIElementBuilder<?>> prebuilt = new IdentityHashMap<>();
+    private CompiledStylesheet stylesheet;
+    // Body children before this index are top-level elements that were already handled and emptied.
+    private int handled;
+    // Whether an element of the body was already read, the stylesheet is then complete.
+    private boolean contentSeen;
+    // Whether elements are styled and handled as they complete, rather than with their top-level element.
+    private boolean perElement;
+
+    StreamingDocumentParser(HtmlParser parser) {
+        this.parser = parser;
+    }
+
+    /**
+     * @param html The markup, after template processing.
+     * @return The builders, or null if the markup needs a full document parse.
+     */
+    List<UIElementBuilder<?>> parse(String html) {
+        if (NEEDS_DOCUMENT.matcher(html).find()) {
+            return null;
+        }
+        parser.setPrebuilt(prebuilt);
+        try {
+            return stream(html);
+        } finally {
+            parser.setPrebuilt(null);
+        }
+    }
+
+    private List<UIElementBuilder<?>> stream(String html) {
+        StreamParser stream = new StreamParser(Parser.htmlParser()).parse(html, "");
+        Document doc = stream.document();
+        Iterator<Element> elements = stream.iterator();
+        while (elements.hasNext()) {
+            Element element = elements.next();
+            if (element.normalName().equals("style")) {
+                if (contentSeen) {
+                    HyUIPlugin.getLog().logFinest("Streaming parse: <style> after content, parsing the full document");
+                    return null;
+                }
+                styleBlocks.add(element.data());
+                element.remove();
+                stylesheet = null;
+                continue;
+            }
+            if (element.normalName().equals("body")) {
+                handleTopLevel(element, null);
+                break;
+            }
+            Element parent = element.parent();
+            if (parent == null || !inBody(parent)) {
+                continue;
+            }
+            if (!contentSeen) {
+                contentSeen = true;
+                perElement = styleBlocks.isEmpty()
+                        || CompiledStylesheet.get(styleBlocks).getFallbackRules().isEmpty();
+            }
+            boolean topLevel = parent.normalName().equals("body");
+            if (perElement || topLevel) {
+                applyStyles(doc, element);
+            }
+            if (topLevel) {
+                handleTopLevel(parent, element);
+            } else if (perElement && canHandleEarly(parent, element)) {
+                prebuilt.put(element, parser.handleElement(element));
+                element.empty();
+            }
+        }
+        return builders;
+    }
+
+    private static boolean inBody(Element element) {
+        for (Element current = element; current != null; current = current.parent()) {
+            if (current.normalName().equals("body")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the parent's handler gets the element's builder through
+     * {@link HtmlParser#handleElement}, so the element can be handled before its parent.
+     */
+    private boolean canHandleEarly(Element parent, Element element) {
+        if (isContainerSection(element)) {
+            // The container reads the children of its title and contents itself.
+            return false;
+        }
+        if (isContainerSection(parent)) {
+            Element container = parent.parent();
+            return container != null && isDivHandler(container);
+        }
+        return isDivHandler(parent);
+    }
+
+    private boolean isDivHandler(Element element) {
+        TagHandler handler = parser.findHandler(element);
+        return handler != null && handler.getClass() == DivHandler.class;
+    }
+
+    private static boolean isContainerSection(Element element) {
+        return element.normalName().equals("div")
+                && (element.hasClass("container-title") || element.hasClass("container-contents"));
+    }
+
+    private void applyStyles(Document doc, Element element) {
+        if (styleBlocks.isEmpty()) {
+            return;
+        }
+        if (stylesheet == null) {
+            stylesheet = CompiledStylesheet.get(styleBlocks);
+            preprocessor.applyDefinitions(doc, stylesheet);
+        }
+        if (perElement) {
+            preprocessor.applyElementRules(doc, element, stylesheet);
+        } else {
+            preprocessor.applyRules(doc, element, stylesheet);
+        }
+    }
+
+    /**
+     * Handles the body children that arrived since the last top-level element: the text before the
+     * element, then the element itself.
+     *
+     * @param body    The document body.
+     * @param element The completed top-level element, or null at the end of the body.
+     */
+    private void handleTopLevel(Element body, Element element) {
+        List<Node> pending = new ArrayList<>(body.childNodes().subList(handled, body.childNodeSize()));
+        for (Node child : pending) {
+            if (child instanceof TextNode textNode) {
+                String text = textNode.text().trim();
+                if (!text.isEmpty()) {
+                    builders.add(LabelBuilder.label().withText(text));
+                }
+                textNode.remove();
+            } else if (child == element) {
+                UIElementBuilder<?> builder = parser.handleElement(element);
+                if (builder != null) {
+                    builders.add(builder);
+                }
+                element.empty();
+                handled++;
+            } else {
+                handled++;
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package au.ellie.hyui.html;
+
+import au.ellie.hyui.utils.ParseUtils;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An immutable, pre-parsed block of CSS declarations, with values converted to booleans, numbers or strings.
+ * Properties keep the order they first appear in, so they are applied in a stable order.
+ * <p>
+ * Blocks are cached by their declaration text, so the {@code style} attributes shared by every row of a
+ * list are split and parsed once. The {@link CssPreprocessor} merges the already parsed rule blocks and
+ * attaches the result to the element instead, so per-element combinations do not churn the cache.
+ * </p>
+ */
+final class StyleDeclarations {
+    private static final int MAX_CACHED = 1024;
+
+    static final StyleDeclarations EMPTY = new StyleDeclarations(Map.of());
+
+    private static final LinkedHashMap<String, StyleDeclarations> CACHE = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, StyleDeclarations> eldest) {
+            return size() > MAX_CACHED;
+        }
+    };
+
+    private final Map<String, Object> values;
+
+    private StyleDeclarations(Map<String, Object> values) {
+        this.values = values;
+    }
+
+    /**
+     * @param text Declarations such as {@code color: #fff; font-size: 12}.
+     * @return The parsed, shared block.
+     */
+    static StyleDeclarations of(String text) {
+        if (text == null || text.isEmpty()) {
+            return EMPTY;
+        }
+        synchronized (CACHE) {
+            StyleDeclarations cached = CACHE.get(text);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        StyleDeclarations created = parse(text);
+        synchronized (CACHE) {
+            CACHE.put(text, created);
+        }
+        return created;
+    }
+
+    /**
+     * Combines blocks in order, later declarations override earlier ones.
+     */
+    static StyleDeclarations merge(List<StyleDeclarations> blocks) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (StyleDeclarations block : blocks) {
+            values.putAll(block.values);
+        }
+        return values.isEmpty() ? EMPTY : new StyleDeclarations(Collections.unmodifiableMap(values));
+    }
+
+    private static StyleDeclarations parse(String text) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        for (String declaration : text.split(";")) {
+            String[] parts = declaration.split(":", 2);
+            if (parts.length == 2) {
+                values.put(parts[0].trim(), parseValue(parts[1].trim()));
+            }
+        }
+        return values.isEmpty() ? EMPTY : new StyleDeclarations(Collections.unmodifiableMap(values));
+    }
+
+    private static Object parseValue(String value) {
+        String trimmed = value.trim();
+        if (trimmed.equalsIgnoreCase("true") || trimmed.equalsIgnoreCase("false")) {
+            return Boolean.parseBoolean(trimmed);
+        }
+        return ParseUtils.parseInt(trimmed)
+                .<Object>map(Integer::valueOf)
+                .or(() -> ParseUtils.parseDouble(trimmed).map(Double::valueOf))
+                .orElse(trimmed);
+    }
+
+    /**
+     * @return The declarations by property name, read-only.
+     */
+    Map<String, Object> values() {
+        return values;
+    }
+
+    boolean isEmpty() {
+        return values.isEmpty();
+    }
+}
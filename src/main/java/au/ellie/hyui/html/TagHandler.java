@@ -9,15 +9,37 @@ import au.ellie.hyui.utils.StyleUtils;
 import com.hypixel.hytale.server.core.Message;
 import org.jsoup.nodes.Element;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Interface for handling a specific HTML tag and converting it to a HyUI builder.
  */
 public interface TagHandler {
     /**
-     * Checks if this handler can handle the given element.
+     * The lowercase tag names this handler claims. The parser only asks this handler about elements
+     * with one of these tags. An empty set means the handler is predicate-based and is asked about
+     * every element.
+     *
+     * @return The claimed tag names.
+     */
+    default Set<String> getTagNames() {
+        return Set.of();
+    }
+
+    /**
+     * Narrows the tag claim to elements carrying at least one of these classes. An empty set claims
+     * every element with a claimed tag.
+     *
+     * @return The claimed class names.
+     */
+    default Set<String> getClassNames() {
+        return Set.of();
+    }
+
+    /**
+     * Checks if this handler can handle the given element. Only called for elements matching
+     * {@link #getTagNames()} and {@link #getClassNames()}.
      *
      * @param element The Jsoup element to check.
      * @return true if this handler can process the element, false otherwise.
@@ -44,6 +66,10 @@ public interface TagHandler {
             builder.withId(element.attr("id"));
         }
 
+        if (element.hasAttr("data-hyui-key")) {
+            builder.withTemplateKey(element.attr("data-hyui-key"));
+        }
+
         if (element.hasAttr("data-hyui-tooltiptext")) {
             builder.withTooltipTextSpan(Message.raw(element.attr("data-hyui-tooltiptext")));
         }
@@ -55,33 +81,32 @@ public interface TagHandler {
         }
 
         if (element.hasAttr("style")) {
-            Map<String, Object> styles = parseStyleAttribute(element.attr("style"));
-            applyStyles(builder, styles);
+            applyStyles(builder, CssPreprocessor.declarations(element, "style").values());
         }
 
         if (element.hasAttr("data-hyui-hover-style")) {
-            Map<String, Object> hoverStyles = parseStyleAttribute(element.attr("data-hyui-hover-style"));
+            Map<String, Object> hoverStyles = CssPreprocessor.declarations(element, "data-hyui-hover-style").values();
             ParsedStyles parsed = getStylesAnchorsPadding(hoverStyles, builder);
             if (parsed.hasStyle) {
                 HyUIStyle currentStyle = builder.getHyUIStyle();
                 if (currentStyle == null) {
                     currentStyle = new HyUIStyle();
                 }
-                HyUIPlugin.getLog().logFinest("Applying hover style: " + parsed.style.toString());
-                HyUIPlugin.getLog().logFinest("Applying style: " + currentStyle.toString());
-                builder.withStyle(currentStyle.setHoverStyle(parsed.style));
+                HyUIPlugin.getLog().logFinest("Applying hover style: %s", parsed.style);
+                HyUIPlugin.getLog().logFinest("Applying style: %s", currentStyle);
+                builder.withStyle(currentStyle.setHoverStyle(StyleInterner.intern(parsed.style)));
             }
         }
 
         if (element.hasAttr("data-hyui-style")) {
-            Map<String, Object> rawStyles = parseStyleAttribute(element.attr("data-hyui-style"));
+            Map<String, Object> rawStyles = StyleDeclarations.of(element.attr("data-hyui-style")).values();
             if (!rawStyles.isEmpty()) {
                 HyUIStyle currentStyle = builder.getHyUIStyle();
                 if (currentStyle == null) {
                     currentStyle = new HyUIStyle();
                 }
                 for (Map.Entry<String, Object> entry : rawStyles.entrySet()) {
-                    HyUIPlugin.getLog().logFinest("Applying style property: " + entry.getKey() + " with value: " + entry.getValue());
+                    HyUIPlugin.getLog().logFinest("Applying style property: %s with value: %s", entry.getKey(), entry.getValue());
                     currentStyle.set(entry.getKey(), entry.getValue());
                 }
                 builder.withStyle(currentStyle);
@@ -134,28 +159,16 @@ public interface TagHandler {
         return trimmed;
     }
 
-    private Map<String, Object> parseStyleAttribute(String styleAttr) {
-        Map<String, Object> styles = new HashMap<>();
-        String[] declarations = styleAttr.split(";");
-        for (String declaration : declarations) {
-            String[] parts = declaration.split(":", 2);
-            if (parts.length == 2) {
-                styles.put(parts[0].trim(), parseStyleValue(parts[1].trim()));
-            }
-        }
-        return styles;
-    }
-
     private void applyStyles(UIElementBuilder<?> builder, Map<String, Object> styles) {
         ParsedStyles parsed = getStylesAnchorsPadding(styles, builder);
         if (parsed.hasStyle) {
-            builder.withStyle(parsed.style);
+            builder.withStyle(StyleInterner.intern(parsed.style));
         }
         if (parsed.hasAnchor) {
-            builder.withAnchor(parsed.anchor);
+            builder.withAnchor(StyleInterner.intern(parsed.anchor));
         }
         if (parsed.hasPadding) {
-            builder.withPadding(parsed.padding);
+            builder.withPadding(StyleInterner.intern(parsed.padding));
         }
     }
 
@@ -481,20 +494,6 @@ public interface TagHandler {
         return parsed;
     }
 
-    private Object parseStyleValue(String value) {
-        if (value == null) {
-            return "";
-        }
-        String trimmed = value.trim();
-        if (trimmed.equalsIgnoreCase("true") || trimmed.equalsIgnoreCase("false")) {
-            return Boolean.parseBoolean(trimmed);
-        }
-        return ParseUtils.parseInt(trimmed)
-                .<Object>map(Integer::valueOf)
-                .or(() -> ParseUtils.parseDouble(trimmed).map(Double::valueOf))
-                .orElse(trimmed);
-    }
-
     private String toStyleString(Object value) {
         return value != null ? String.valueOf(value) : "";
     }
@@ -0,0 +1,165 @@
+package au.ellie.hyui.html;
+
+import au.ellie.hyui.HyUIPlugin;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Process-wide, thread-safe cache of compiled HyUIML templates.
+ * <p>
+ * Compiled templates are keyed by their full source, so the same page opened by many players is only
+ * compiled once, wherever its source came from. Resource files are additionally cached by resource path,
+ * so the classpath is only read once per file.
+ * </p>
+ * Both caches are bounded LRUs, see {@link #setMaxEntries(int)}.
+ */
+public final class TemplateCache {
+    private static final int DEFAULT_MAX_ENTRIES = 256;
+
+    // Guarded by CACHE, like the counters.
+    private static final LinkedHashMap<String, String> RESOURCES = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            if (size() > maxEntries) {
+                resourceEvictions++;
+                return true;
+            }
+            return false;
+        }
+    };
+    private static final LinkedHashMap<String, CompiledTemplate> CACHE = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CompiledTemplate> eldest) {
+            if (size() > maxEntries) {
+                evictions++;
+                return true;
+            }
+            return false;
+        }
+    };
+
+    private static int maxEntries = DEFAULT_MAX_ENTRIES;
+    private static long hits;
+    private static long misses;
+    private static long evictions;
+    private static long resourceHits;
+    private static long resourceMisses;
+    private static long resourceEvictions;
+
+    private TemplateCache() {}
+
+    /**
+     * Returns the compiled form of a template, compiling it on first use.
+     *
+     * @param source The template source.
+     * @return The shared compiled template.
+     */
+    public static CompiledTemplate get(String source) {
+        String text = source != null ? source : "";
+        synchronized (CACHE) {
+            CompiledTemplate cached = CACHE.get(text);
+            if (cached != null) {
+                hits++;
+                return cached;
+            }
+            misses++;
+        }
+
+        // Compile outside the lock, a concurrent duplicate compile is harmless.
+        CompiledTemplate compiled = CompiledTemplate.compile(text);
+        synchronized (CACHE) {
+            CACHE.put(text, compiled);
+        }
+        HyUIPlugin.getLog().logFinest("Template cache miss, compiled %s chars", text.length());
+        return compiled;
+    }
+
+    /**
+     * Returns the contents of a resource, loading it through the given loader only the first time
+     * the resource path is requested.
+     *
+     * @param resourcePath The resource path, used as the cache key.
+     * @param loader       Loads the resource contents on a cache miss.
+     * @return The resource contents.
+     */
+    public static String getResource(String resourcePath, Supplier<String> loader) {
+        synchronized (CACHE) {
+            String cached = RESOURCES.get(resourcePath);
+            if (cached != null) {
+                resourceHits++;
+                return cached;
+            }
+            resourceMisses++;
+        }
+
+        // Load outside the lock, a concurrent duplicate load is harmless.
+        String contents = loader.get();
+        synchronized (CACHE) {
+            RESOURCES.put(resourcePath, contents);
+        }
+        return contents;
+    }
+
+    /**
+     * Sets the maximum number of compiled templates, and of resource files, kept in memory.
+     *
+     * @param max The maximum entry count, at least 1.
+     */
+    public static void setMaxEntries(int max) {
+        if (max < 1) {
+            throw new IllegalArgumentException("Template cache size must be at least 1.");
+        }
+        synchronized (CACHE) {
+            maxEntries = max;
+            var iterator = CACHE.entrySet().iterator();
+            while (CACHE.size() > maxEntries && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+                evictions++;
+            }
+            var resources = RESOURCES.entrySet().iterator();
+            while (RESOURCES.size() > maxEntries && resources.hasNext()) {
+                resources.next();
+                resources.remove();
+                resourceEvictions++;
+            }
+        }
+    }
+
+    /**
+     * Drops every cached template and resource, for example after resources were reloaded.
+     */
+    public static void clear() {
+        synchronized (CACHE) {
+            CACHE.clear();
+            RESOURCES.clear();
+        }
+    }
+
+    /**
+     * @return A snapshot of the cache counters.
+     */
+    public static Stats getStats() {
+        synchronized (CACHE) {
+            return new Stats(hits, misses, evictions, CACHE.size(),
+                    resourceHits, resourceMisses, resourceEvictions, RESOURCES.size());
+        }
+    }
+
+    /**
+     * Cache counters, cumulative since startup.
+     *
+     * @param hits              Lookups answered from the cache.
+     * @param misses            Lookups that required a compile.
+     * @param evictions         Templates dropped to stay within the size bound.
+     * @param size              Compiled templates currently cached.
+     * @param resourceHits      Resource lookups answered from the cache.
+     * @param resourceMisses    Resource lookups that read the classpath.
+     * @param resourceEvictions Resource files dropped to stay within the size bound.
+     * @param resources         Resource files currently cached.
+     */
+    public record Stats(long hits, long misses, long evictions, int size,
+                        long resourceHits, long resourceMisses, long resourceEvictions, int resources) {}
+}
@@ -0,0 +1,345 @@
+package au.ellie.hyui.html;
+
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A pre-parsed {@code {{#if}}} condition.
+ * <p>
+ * Conditions are parsed once when the template is compiled into a small expression tree of
+ * {@code ||}, {@code &&}, {@code !}, comparisons, {@code contains} and truthy checks. Literal operands
+ * are converted to their typed values up front, only variable references are resolved per evaluation.
+ * </p>
+ */
+sealed interface TemplateCondition {
+
+    Pattern CONTAINS_PATTERN = Pattern.compile("(.+?)\\s+contains\\s+(.+)");
+    Pattern COMPARISON_PATTERN = Pattern.compile("(.+?)(==|!=|>=|<=|>|<)(.+)");
+
+    /**
+     * Resolves a variable reference used as an operand.
+     */
+    @FunctionalInterface
+    interface OperandResolver {
+        Object resolve(String reference);
+    }
+
+    boolean test(OperandResolver resolver);
+
+    /**
+     * Parses a raw condition. Blank conditions always evaluate to false.
+     *
+     * @param rawCondition The condition text of an {@code {{#if}}} block.
+     * @return The parsed condition.
+     */
+    static TemplateCondition parse(String rawCondition) {
+        String condition = rawCondition != null ? rawCondition.trim() : "";
+        if (condition.isEmpty()) {
+            return new Constant(false);
+        }
+
+        List<TemplateCondition> orParts = new ArrayList<>();
+        for (String orPart : splitByOperator(condition, "||")) {
+            List<TemplateCondition> andParts = new ArrayList<>();
+            for (String andPart : splitByOperator(orPart, "&&")) {
+                andParts.add(parseUnary(andPart));
+            }
+            orParts.add(andParts.size() == 1 ? andParts.get(0) : new And(List.copyOf(andParts)));
+        }
+        return orParts.size() == 1 ? orParts.get(0) : new Or(List.copyOf(orParts));
+    }
+
+    private static TemplateCondition parseUnary(String condition) {
+        String trimmed = condition.trim();
+        if (trimmed.startsWith("!")) {
+            return new Not(parseUnary(trimmed.substring(1)));
+        }
+        return parseComparison(trimmed);
+    }
+
+    private static TemplateCondition parseComparison(String condition) {
+        Matcher containsMatcher = CONTAINS_PATTERN.matcher(condition);
+        if (containsMatcher.matches()) {
+            return new Contains(Operand.parse(containsMatcher.group(1)), Operand.parse(containsMatcher.group(2)));
+        }
+
+        Matcher matcher = COMPARISON_PATTERN.matcher(condition);
+        if (matcher.matches()) {
+            return new Compare(Operand.parse(matcher.group(1)), Operator.fromSymbol(matcher.group(2)),
+                    Operand.parse(matcher.group(3)));
+        }
+
+        return new Truthy(Operand.parse(condition));
+    }
+
+    private static List<String> splitByOperator(String input, String operator) {
+        List<String> parts = new ArrayList<>();
+        boolean inSingle = false;
+        boolean inDouble = false;
+        int start = 0;
+
+        for (int i = 0; i < input.length(); i++) {
+            char c = input.charAt(i);
+            if (c == '"' && !inSingle) {
+                inDouble = !inDouble;
+                continue;
+            }
+            if (c == '\'' && !inDouble) {
+                inSingle = !inSingle;
+                continue;
+            }
+
+            if (!inSingle && !inDouble && input.startsWith(operator, i)) {
+                parts.add(input.substring(start, i));
+                start = i + operator.length();
+                i += operator.length() - 1;
+            }
+        }
+
+        parts.add(input.substring(start));
+        return parts;
+    }
+
+    record Constant(boolean value) implements TemplateCondition {
+        @Override
+        public boolean test(OperandResolver resolver) {
+            return value;
+        }
+    }
+
+    record Or(List<TemplateCondition> parts) implements TemplateCondition {
+        @Override
+        public boolean test(OperandResolver resolver) {
+            for (TemplateCondition part : parts) {
+                if (part.test(resolver)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    record And(List<TemplateCondition> parts) implements TemplateCondition {
+        @Override
+        public boolean test(OperandResolver resolver) {
+            for (TemplateCondition part : parts) {
+                if (!part.test(resolver)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    record Not(TemplateCondition inner) implements TemplateCondition {
+        @Override
+        public boolean test(OperandResolver resolver) {
+            return !inner.test(resolver);
+        }
+    }
+
+    record Truthy(Operand operand) implements TemplateCondition {
+        @Override
+        public boolean test(OperandResolver resolver) {
+            return isTruthy(operand.evaluate(resolver));
+        }
+    }
+
+    record Contains(Operand left, Operand right) implements TemplateCondition {
+        @Override
+        public boolean test(OperandResolver resolver) {
+            return containsValue(left.evaluate(resolver), right.evaluate(resolver));
+        }
+    }
+
+    record Compare(Operand left, Operator operator, Operand right) implements TemplateCondition {
+        @Override
+        public boolean test(OperandResolver resolver) {
+            return compareValues(left.evaluate(resolver), right.evaluate(resolver), operator);
+        }
+    }
+
+    enum Operator {
+        EQ("=="), NE("!="), GT(">"), LT("<"), GE(">="), LE("<=");
+
+        private final String symbol;
+
+        Operator(String symbol) {
+            this.symbol = symbol;
+        }
+
+        static Operator fromSymbol(String symbol) {
+            for (Operator operator : values()) {
+                if (operator.symbol.equals(symbol)) {
+                    return operator;
+                }
+            }
+            throw new IllegalArgumentException("Unknown operator: " + symbol);
+        }
+    }
+
+    /**
+     * An operand, either a typed literal or a variable reference.
+     * A reference that does not resolve to a variable evaluates to its own text.
+     *
+     * @param literal   The literal value, when {@code reference} is null.
+     * @param reference The variable reference, or null for literals.
+     */
+    record Operand(Object literal, String reference) {
+
+        static Operand parse(String token) {
+            if (token == null) {
+                return new Operand(null, null);
+            }
+            String trimmed = token.trim();
+            if (trimmed.isEmpty()) {
+                return new Operand("", null);
+            }
+
+            if (trimmed.length() >= 2 && ((trimmed.startsWith("\"") && trimmed.endsWith("\""))
+                    || (trimmed.startsWith("'") && trimmed.endsWith("'")))) {
+                return new Operand(trimmed.substring(1, trimmed.length() - 1), null);
+            }
+
+            if ("null".equalsIgnoreCase(trimmed)) {
+                return new Operand(null, null);
+            }
+
+            if ("true".equalsIgnoreCase(trimmed) || "false".equalsIgnoreCase(trimmed)) {
+                return new Operand(Boolean.parseBoolean(trimmed), null);
+            }
+
+            try {
+                if (trimmed.contains(".")) {
+                    return new Operand(Double.parseDouble(trimmed), null);
+                }
+                return new Operand(Long.parseLong(trimmed), null);
+            } catch (NumberFormatException ignored) {
+                // Not a number literal.
+            }
+
+            return new Operand(null, trimmed);
+        }
+
+        Object evaluate(OperandResolver resolver) {
+            return reference != null ? resolver.resolve(reference) : literal;
+        }
+    }
+
+    static boolean compareValues(Object left, Object right, Operator operator) {
+        if (left == null || right == null) {
+            if (operator == Operator.EQ) {
+                return left == right;
+            }
+            if (operator == Operator.NE) {
+                return left != right;
+            }
+            return false;
+        }
+
+        Double leftNum = toNumber(left);
+        Double rightNum = toNumber(right);
+        if (leftNum != null && rightNum != null) {
+            return switch (operator) {
+                case EQ -> Double.compare(leftNum, rightNum) == 0;
+                case NE -> Double.compare(leftNum, rightNum) != 0;
+                case GT -> leftNum > rightNum;
+                case LT -> leftNum < rightNum;
+                case GE -> leftNum >= rightNum;
+                case LE -> leftNum <= rightNum;
+            };
+        }
+
+        if (left instanceof Boolean || right instanceof Boolean) {
+            boolean leftVal = left instanceof Boolean ? (Boolean) left : Boolean.parseBoolean(left.toString());
+            boolean rightVal = right instanceof Boolean ? (Boolean) right : Boolean.parseBoolean(right.toString());
+            return switch (operator) {
+                case EQ -> leftVal == rightVal;
+                case NE -> leftVal != rightVal;
+                default -> false;
+            };
+        }
+
+        String leftStr = String.valueOf(left);
+        String rightStr = String.valueOf(right);
+        return switch (operator) {
+            case EQ -> leftStr.equals(rightStr);
+            case NE -> !leftStr.equals(rightStr);
+            default -> false;
+        };
+    }
+
+    private static Double toNumber(Object value) {
+        if (value instanceof Number number) {
+            return number.doubleValue();
+        }
+        try {
+            return Double.parseDouble(value.toString());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    static boolean containsValue(Object left, Object right) {
+        if (left == null || right == null) {
+            return false;
+        }
+
+        if (left instanceof CharSequence seq) {
+            return seq.toString().contains(String.valueOf(right));
+        }
+
+        if (left instanceof Map<?, ?> map) {
+            return map.containsKey(right);
+        }
+
+        if (left instanceof Iterable<?> iterable) {
+            for (Object item : iterable) {
+                if (item != null && item.equals(right)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        if (left.getClass().isArray()) {
+            int length = Array.getLength(left);
+            for (int i = 0; i < length; i++) {
+                Object item = Array.get(left, i);
+                if (item != null && item.equals(right)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        return left.toString().contains(String.valueOf(right));
+    }
+
+    static boolean isTruthy(Object value) {
+        if (value == null) {
+            return false;
+        }
+        if (value instanceof Boolean bool) {
+            return bool;
+        }
+        if (value instanceof Number number) {
+            return number.doubleValue() != 0;
+        }
+        if (value instanceof CharSequence seq) {
+            String text = seq.toString().trim();
+            return !text.isEmpty() && !"false".equalsIgnoreCase(text);
+        }
+        if (value instanceof Iterable<?> iterable) {
+            return iterable.iterator().hasNext();
+        }
+        if (value.getClass().isArray()) {
+            return Array.getLength(value) > 0;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,458 @@
+package au.ellie.hyui.html;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Splits a template into independently renderable regions.
+ * <p>
+ * Every top-level element of the template becomes its own leaf region, as does every run of text and
+ * template blocks between elements. A plain {@code <div>}, page overlay or container with a static start tag
+ * becomes a group instead, whose content is split the same way, so a change deep inside a page wrapper only
+ * re-renders the leaf that depends on it. The {@code container-title} and {@code container-contents} divs
+ * of a container do not produce builders of their own: their content is split into the container's parts,
+ * which are placed in the container's {@code #Title} or {@code #Content}. Because each leaf is a complete,
+ * balanced piece of markup, parsing it on its own yields the same builders as parsing it as part of the
+ * whole document.
+ * </p>
+ * Templates that cannot be split safely (unbalanced markup, blocks that open and close in different
+ * elements, or markup with document-wide effects such as {@code <style>} and tab navigation) get a single
+ * leaf holding the whole template.
+ */
+final class TemplateLayout {
+
+    /**
+     * Markup whose effect reaches outside its own element, so it must be parsed as one document.
+     */
+    static final Pattern DOCUMENT_WIDE = Pattern.compile(
+            "<style|<script|<nav\\b|\\btab-navigation\\b|\\btabs\\b", Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern CLASS_ATTRIBUTE = Pattern.compile(
+            "\\sclass\\s*=\\s*(?:\"([^\"]*)\"|'([^']*)'|([^\\s>]+))", Pattern.CASE_INSENSITIVE);
+
+    private static final Set<String> VOID_TAGS = Set.of(
+            "area", "base", "br", "col", "embed", "hr", "img", "input", "keygen", "link", "meta", "param",
+            "source", "track", "wbr");
+
+    // Divs with these classes are not groups, their handlers treat children specially.
+    private static final Set<String> SPECIAL_DIV_CLASSES = Set.of(
+            "container-title", "container-contents", "item-grid", "tab-content", "tabs", "tab-navigation");
+
+    private static final String CONTENT = "#Content";
+    private static final String TITLE = "#Title";
+
+    sealed interface Part permits Leaf, Group {}
+
+    /**
+     * A region rendered and parsed on its own.
+     *
+     * @param template The region template.
+     * @param parent   The part of the enclosing container its builders are placed in, or null.
+     */
+    record Leaf(CompiledTemplate template, String parent) implements Part {}
+
+    /**
+     * A {@code <div>} with a static start tag, handled as a group, page overlay or container. It always
+     * produces exactly one builder, whose children are the builders of its parts.
+     *
+     * @param startTag The start tag.
+     * @param parts    The parts of its content.
+     * @param parent   The part of the enclosing container its builder is placed in, or null.
+     */
+    record Group(String startTag, List<Part> parts, String parent) implements Part {}
+
+    private final List<Part> parts;
+    private final boolean split;
+
+    private TemplateLayout(List<Part> parts, boolean split) {
+        this.parts = parts;
+        this.split = split;
+    }
+
+    /**
+     * @param template The compiled template to split.
+     * @return The region layout, a single leaf if the template cannot be split.
+     */
+    static TemplateLayout of(CompiledTemplate template) {
+        String source = template.getSource();
+        if (!DOCUMENT_WIDE.matcher(source).find()) {
+            List<Part> parts = new Scanner(source).scan();
+            if (parts != null) {
+                return new TemplateLayout(parts, true);
+            }
+        }
+        return single(template);
+    }
+
+    /**
+     * @return A layout with one leaf holding the whole template.
+     */
+    static TemplateLayout single(CompiledTemplate template) {
+        return new TemplateLayout(List.of(new Leaf(template, null)), false);
+    }
+
+    List<Part> parts() {
+        return parts;
+    }
+
+    boolean isSplit() {
+        return split;
+    }
+
+    private enum Kind {
+        OPEN, CLOSE, BLOCK_OPEN, BLOCK_ELSE, BLOCK_CLOSE
+    }
+
+    /**
+     * A markup or block token. {@code end} is the index just past the token, {@code match} the index of
+     * the matching close token for elements and blocks.
+     */
+    private static final class Token {
+        final Kind kind;
+        final int start;
+        final int end;
+        final String name;
+        final boolean empty;
+        final boolean staticTag;
+        int match = -1;
+
+        Token(Kind kind, int start, int end, String name, boolean empty, boolean staticTag) {
+            this.kind = kind;
+            this.start = start;
+            this.end = end;
+            this.name = name;
+            this.empty = empty;
+            this.staticTag = staticTag;
+        }
+    }
+
+    private static final class Scanner {
+        private final String source;
+        private final List<Token> tokens = new ArrayList<>();
+
+        private Scanner(String source) {
+            this.source = source;
+        }
+
+        private List<Part> scan() {
+            if (!tokenize() || !matchTokens()) {
+                return null;
+            }
+            return frame(0, tokens.size(), 0, source.length(), null, false);
+        }
+
+        private boolean tokenize() {
+            int length = source.length();
+            int i = 0;
+            while (i < length) {
+                if (source.startsWith("{{", i)) {
+                    int end = templateTagEnd(i);
+                    if (end < 0) {
+                        i += 2;
+                        continue;
+                    }
+                    String inner = source.substring(i + 2, end - 2);
+                    Kind kind = blockKind(inner);
+                    if (kind != null) {
+                        tokens.add(new Token(kind, i, end, blockName(inner), false, true));
+                    }
+                    i = end;
+                } else if (source.startsWith("<!--", i)) {
+                    int end = source.indexOf("-->", i + 4);
+                    i = end < 0 ? length : end + 3;
+                } else if (source.startsWith("</", i) && i + 2 < length && Character.isLetter(source.charAt(i + 2))) {
+                    int end = source.indexOf('>', i);
+                    if (end < 0) {
+                        return false;
+                    }
+                    tokens.add(new Token(Kind.CLOSE, i, end + 1, tagName(i + 2), false, true));
+                    i = end + 1;
+                } else if (source.charAt(i) == '<' && i + 1 < length && Character.isLetter(source.charAt(i + 1))) {
+                    i = startTag(i);
+                    if (i < 0) {
+                        return false;
+                    }
+                } else {
+                    i++;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Reads a start tag, skipping quoted values and template tags inside it.
+         *
+         * @return The index past the tag, or -1 if it cannot be split around.
+         */
+        private int startTag(int start) {
+            String name = tagName(start + 1);
+            boolean staticTag = true;
+            int blockDepth = 0;
+            char quote = 0;
+            int i = start + 1 + name.length();
+            while (i < source.length()) {
+                if (source.startsWith("{{", i)) {
+                    int end = templateTagEnd(i);
+                    if (end < 0) {
+                        return -1;
+                    }
+                    Kind kind = blockKind(source.substring(i + 2, end - 2));
+                    if (kind == Kind.BLOCK_OPEN) {
+                        blockDepth++;
+                    } else if (kind == Kind.BLOCK_CLOSE) {
+                        blockDepth--;
+                    }
+                    staticTag = false;
+                    i = end;
+                    continue;
+                }
+                char c = source.charAt(i);
+                if (quote != 0) {
+                    if (c == quote) {
+                        quote = 0;
+                    }
+                } else if (c == '"' || c == '\'') {
+                    quote = c;
+                } else if (c == '>') {
+                    if (blockDepth != 0) {
+                        return -1;
+                    }
+                    boolean selfClosing = source.charAt(i - 1) == '/';
+                    boolean isVoid = VOID_TAGS.contains(name);
+                    if (selfClosing && !isVoid) {
+                        // The HTML parser ignores "/>" on known elements, so nesting is ambiguous.
+                        return -1;
+                    }
+                    tokens.add(new Token(Kind.OPEN, start, i + 1, name, isVoid, staticTag));
+                    if (name.equals("textarea")) {
+                        int close = source.toLowerCase(Locale.ROOT).indexOf("</textarea", i + 1);
+                        return close < 0 ? -1 : close;
+                    }
+                    return i + 1;
+                }
+                i++;
+            }
+            return -1;
+        }
+
+        /**
+         * Pairs every element and block with its close, requiring elements and blocks to nest properly.
+         */
+        private boolean matchTokens() {
+            Deque<Integer> open = new ArrayDeque<>();
+            for (int i = 0; i < tokens.size(); i++) {
+                Token token = tokens.get(i);
+                switch (token.kind) {
+                    case OPEN -> {
+                        if (!token.empty) {
+                            open.push(i);
+                        }
+                    }
+                    case BLOCK_OPEN -> open.push(i);
+                    case BLOCK_ELSE -> {
+                        if (open.isEmpty() || tokens.get(open.peek()).kind != Kind.BLOCK_OPEN) {
+                            return false;
+                        }
+                    }
+                    case CLOSE, BLOCK_CLOSE -> {
+                        if (open.isEmpty()) {
+                            return false;
+                        }
+                        Token opener = tokens.get(open.peek());
+                        boolean matches = opener.kind == (token.kind == Kind.CLOSE ? Kind.OPEN : Kind.BLOCK_OPEN)
+                                && opener.name.equals(token.name);
+                        if (!matches) {
+                            return false;
+                        }
+                        opener.match = i;
+                        open.pop();
+                    }
+                }
+            }
+            return open.isEmpty();
+        }
+
+        /**
+         * Splits the markup between two tokens into parts.
+         *
+         * @param parent    The container part the builders are placed in, or null.
+         * @param container Whether the markup is the content of a container, whose title and contents
+         *                  divs are split into the container's own parts.
+         */
+        private List<Part> frame(int fromToken, int toToken, int from, int to, String parent, boolean container) {
+            List<Part> parts = new ArrayList<>();
+            int runStart = from;
+            int i = fromToken;
+            while (i < toToken) {
+                Token token = tokens.get(i);
+                if (token.kind == Kind.BLOCK_OPEN) {
+                    // Blocks stay inside the surrounding run.
+                    i = token.match + 1;
+                    continue;
+                }
+                if (token.kind != Kind.OPEN) {
+                    i++;
+                    continue;
+                }
+
+                addRun(parts, runStart, token.start, parent);
+                if (token.empty) {
+                    parts.add(leaf(token.start, token.end, parent));
+                    runStart = token.end;
+                    i++;
+                    continue;
+                }
+
+                Token close = tokens.get(token.match);
+                Set<String> classes = classes(token);
+                String section = !container || !token.name.equals("div") || !token.staticTag ? null
+                        : classes.contains("container-contents") ? CONTENT
+                        : classes.contains("container-title") ? TITLE : null;
+                if (section != null) {
+                    // Handled by the container, which places its children in the section.
+                    parts.addAll(frame(i + 1, token.match, token.end, close.start, section, false));
+                } else if (isGroup(token, classes)) {
+                    boolean isContainer = isContainer(classes);
+                    if (isContainer && hasDirectPageOverlay(i + 1, token.match)) {
+                        parts.add(leaf(token.start, close.end, parent));
+                    } else {
+                        parts.add(new Group(source.substring(token.start, token.end),
+                                List.copyOf(frame(i + 1, token.match, token.end, close.start,
+                                        isContainer ? CONTENT : null, isContainer)), parent));
+                    }
+                } else {
+                    parts.add(leaf(token.start, close.end, parent));
+                }
+                runStart = close.end;
+                i = token.match + 1;
+            }
+            addRun(parts, runStart, to, parent);
+            return parts;
+        }
+
+        private void addRun(List<Part> parts, int start, int end, String parent) {
+            if (end > start && !source.substring(start, end).isBlank()) {
+                parts.add(leaf(start, end, parent));
+            }
+        }
+
+        private Leaf leaf(int start, int end, String parent) {
+            return new Leaf(CompiledTemplate.compile(source.substring(start, end)), parent);
+        }
+
+        private boolean isGroup(Token token, Set<String> classes) {
+            if (!token.name.equals("div") || !token.staticTag) {
+                return false;
+            }
+            for (String className : classes) {
+                if (SPECIAL_DIV_CLASSES.contains(className)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * @return true if the div handler builds a container for the classes, see {@code DivHandler}.
+         */
+        private static boolean isContainer(Set<String> classes) {
+            return !classes.contains("page-overlay")
+                    && (classes.contains("container") || classes.contains("decorated-container"));
+        }
+
+        /**
+         * @return true if a direct child element between the tokens is a page overlay, which a container
+         * adds outside its {@code #Content}.
+         */
+        private boolean hasDirectPageOverlay(int fromToken, int toToken) {
+            int i = fromToken;
+            while (i < toToken) {
+                Token token = tokens.get(i);
+                if (token.kind == Kind.OPEN && token.name.equals("div") && classes(token).contains("page-overlay")) {
+                    return true;
+                }
+                // Elements inside blocks are direct children too, so only elements are skipped.
+                i = token.kind == Kind.OPEN && !token.empty ? token.match + 1 : i + 1;
+            }
+            return false;
+        }
+
+        private Set<String> classes(Token token) {
+            Set<String> classes = new HashSet<>();
+            Matcher matcher = CLASS_ATTRIBUTE.matcher(source.substring(token.start, token.end));
+            while (matcher.find()) {
+                String value = matcher.group(1) != null ? matcher.group(1)
+                        : matcher.group(2) != null ? matcher.group(2) : matcher.group(3);
+                for (String className : value.trim().split("\\s+")) {
+                    if (!className.isEmpty()) {
+                        classes.add(className.toLowerCase(Locale.ROOT));
+                    }
+                }
+            }
+            return classes;
+        }
+
+        private String tagName(int start) {
+            int end = start;
+            while (end < source.length()) {
+                char c = source.charAt(end);
+                if (!Character.isLetterOrDigit(c) && c != '-' && c != '_' && c != ':') {
+                    break;
+                }
+                end++;
+            }
+            return source.substring(start, end).toLowerCase(Locale.ROOT);
+        }
+
+        /**
+         * @return The index past the template tag starting at {@code start}, matching nested braces,
+         * or -1 if it is never closed.
+         */
+        private int templateTagEnd(int start) {
+            int depth = 0;
+            int i = start;
+            while (i < source.length() - 1) {
+                if (source.startsWith("{{", i)) {
+                    depth++;
+                    i += 2;
+                } else if (source.startsWith("}}", i)) {
+                    depth--;
+                    i += 2;
+                    if (depth == 0) {
+                        return i;
+                    }
+                } else {
+                    i++;
+                }
+            }
+            return -1;
+        }
+
+        private static String blockName(String inner) {
+            if (inner.equals("else")) {
+                return "else";
+            }
+            return inner.startsWith("#each") || inner.equals("/each") ? "each" : "if";
+        }
+
+        private static Kind blockKind(String inner) {
+            if (inner.startsWith("#each") || inner.startsWith("#if")) {
+                return Kind.BLOCK_OPEN;
+            }
+            if (inner.equals("/each") || inner.equals("/if")) {
+                return Kind.BLOCK_CLOSE;
+            }
+            if (inner.equals("else")) {
+                return Kind.BLOCK_ELSE;
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package au.ellie.hyui.html;
+
+import java.util.List;
+
+/**
+ * A node of a compiled HyUIML template. Nodes are immutable and can be rendered any number of times.
+ */
+sealed interface TemplateNode {
+
+    /**
+     * Literal markup copied to the output as-is.
+     */
+    record Text(String text) implements TemplateNode {}
+
+    /**
+     * A {@code {{$name}}} placeholder, optionally followed by a {@code |filter} or {@code |default} chain.
+     *
+     * @param name  The variable name or dot path.
+     * @param pipe  The raw text after the first pipe, or null if there is none.
+     * @param chain The pipe text split into its segments, used when the pipe is a filter chain.
+     */
+    record Variable(String name, String pipe, List<String> chain) implements TemplateNode {}
+
+    /**
+     * A {@code {{#each list}}...{{/each}}} block, optionally keyed with {@code {{#each list key=item.id}}}.
+     *
+     * @param listName The list variable name or dot path.
+     * @param key      The key expression evaluated per item, or null if the block is not keyed.
+     * @param body     The nodes rendered for each item.
+     */
+    record Each(String listName, String key, List<TemplateNode> body) implements TemplateNode {}
+
+    /**
+     * A {@code {{#if condition}}...{{else}}...{{/if}}} block. The condition is parsed at compile time.
+     */
+    record If(String rawCondition, TemplateCondition condition,
+              List<TemplateNode> whenTrue, List<TemplateNode> whenFalse) implements TemplateNode {}
+
+    /**
+     * A {@code {{@name:key=value,...}}} component include.
+     */
+    record Component(String name, List<Param> params) implements TemplateNode {}
+
+    /**
+     * A single component parameter. The value is itself a template, so it may reference variables.
+     *
+     * @param constant The value when it is plain text, so it needs no rendering, or null.
+     */
+    record Param(String key, String rawValue, List<TemplateNode> value, String constant) {}
+}
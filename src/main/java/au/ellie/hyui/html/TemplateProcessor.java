@@ -4,16 +4,19 @@ import au.ellie.hyui.HyUIPlugin;
 import au.ellie.hyui.events.UIContext;
 import au.ellie.hyui.builders.UIElementBuilder;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.lang.reflect.Array;
-import java.lang.reflect.Field;
-import java.lang.reflect.Method;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.Function;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.function.Supplier;
 
 /**
  * Preprocessor for HyUIML templates that supports variable interpolation and component inclusion.
@@ -43,27 +46,36 @@ import java.util.regex.Pattern;
  * {{$name|lower}}     - Lowercase
  * {{$value|number}}   - Format as number
  * {{$value|percent}}  - Format as percentage
+ * {{$name|trim|upper}} - Filters can be chained
  * </pre>
+ *
+ * <h2>Compiled Templates</h2>
+ * Templates are compiled once into a {@link CompiledTemplate} and rendered from that tree, so
+ * pages that are refreshed often can call {@link #compile(String)} once and reuse the result.
+ *
+ * <h2>Threads</h2>
+ * One processor may back several interfaces whose refreshes are built on different threads. Renders
+ * swap the processor's value resolver and trace for their duration, so renders, variable changes and
+ * registrations are serialised on the processor. Pages and HUDs opened from a prototype builder each get
+ * their own {@link #copy()}.
  */
 public class TemplateProcessor {
 
-    // Pattern for {{$variable}} or {{$variable|default}} or {{$variable|filter}}
-    private static final Pattern VARIABLE_PATTERN = Pattern.compile(
-            "\\{\\{\\$([a-zA-Z_][a-zA-Z0-9_]*(?:\\.[a-zA-Z_][a-zA-Z0-9_]*)*)(?:\\|([^}]*))?\\}\\}"
-    );
-
-    private static final String EACH_START = "{{#each";
-    private static final String EACH_END = "{{/each}}";
-    private static final String IF_START = "{{#if";
-    private static final String IF_END = "{{/if}}";
-    private static final String ELSE_TAG = "{{else}}";
-
     private final Map<String, Object> variables = new HashMap<>();
-    private final Map<String, String> components = new HashMap<>();
+    private final Map<String, CompiledComponent> components = new HashMap<>();
     private final Map<String, Function<String, String>> filters = new HashMap<>();
     private ValueResolver valueResolver;
     private static final Object NULL_SENTINEL = new Object();
+    private static final Set<String> VOID_TAGS = Set.of(
+            "area", "base", "br", "col", "embed", "hr", "img", "input", "keygen", "link", "meta", "param",
+            "source", "track", "wbr");
     private boolean preferDynamicValues;
+    private CompiledTemplate lastCompiled;
+    private RenderTrace activeTrace;
+    // The components being rendered, so a component that includes itself is not expanded again.
+    private final Set<String> renderingComponents = new HashSet<>();
+    // Bumped whenever components or filters change, which invalidates every recorded trace.
+    private int version;
 
     @FunctionalInterface
     public interface ValueResolver {
@@ -87,7 +99,7 @@ public class TemplateProcessor {
      * @param value Variable value
      * @return This processor for chaining
      */
-    public TemplateProcessor setVariable(String name, String value) {
+    public synchronized TemplateProcessor setVariable(String name, String value) {
         variables.put(name, value);
         return this;
     }
@@ -99,7 +111,7 @@ public class TemplateProcessor {
      * @param value Variable value (will be converted to string)
      * @return This processor for chaining
      */
-    public TemplateProcessor setVariable(String name, Object value) {
+    public synchronized TemplateProcessor setVariable(String name, Object value) {
         variables.put(name, value);
         return this;
     }
@@ -110,7 +122,7 @@ public class TemplateProcessor {
      * @param vars Map of variable names to values
      * @return This processor for chaining
      */
-    public TemplateProcessor setVariables(Map<String, ?> vars) {
+    public synchronized TemplateProcessor setVariables(Map<String, ?> vars) {
         for (Map.Entry<String, ?> entry : vars.entrySet()) {
             setVariable(entry.getKey(), entry.getValue());
         }
@@ -118,17 +130,33 @@ public class TemplateProcessor {
     }
 
     /**
-     * Registers a reusable component template.
+     * Registers a reusable component template. The template is compiled here, once, and every include
+     * renders the compiled form with its parameters bound by slot.
      *
      * @param name     Component name (e.g., "button", "card")
      * @param template Component HTML template
      * @return This processor for chaining
      */
-    public TemplateProcessor registerComponent(String name, String template) {
-        components.put(name, template);
+    public synchronized TemplateProcessor registerComponent(String name, String template) {
+        components.put(name, CompiledComponent.compile(name, template));
+        version++;
         return this;
     }
 
+    /**
+     * Copies this processor, so the copy's variables can be changed without affecting this one. The
+     * compiled components and the filters are shared.
+     *
+     * @return The copy.
+     */
+    public synchronized TemplateProcessor copy() {
+        TemplateProcessor copy = new TemplateProcessor();
+        copy.variables.putAll(variables);
+        copy.components.putAll(components);
+        copy.filters.putAll(filters);
+        return copy;
+    }
+
     /**
      * Registers a custom filter function.
      *
@@ -136,8 +164,9 @@ public class TemplateProcessor {
      * @param filter Filter function
      * @return This processor for chaining
      */
-    public TemplateProcessor registerFilter(String name, Function<String, String> filter) {
+    public synchronized TemplateProcessor registerFilter(String name, Function<String, String> filter) {
         filters.put(name, filter);
+        version++;
         return this;
     }
 
@@ -147,8 +176,8 @@ public class TemplateProcessor {
      * @param template The template string
      * @return Processed HTML string
      */
-    public String process(String template) {
-        return processTemplate(template, new HashMap<>(variables));
+    public synchronized String process(String template) {
+        return process(compile(template));
     }
 
     /**
@@ -158,479 +187,394 @@ public class TemplateProcessor {
      * @param context The UI context for runtime values
      * @return Processed HTML string
      */
-    public String process(String template, UIContext context) {
-        ValueResolver previousResolver = this.valueResolver;
-        boolean previousPreferDynamic = this.preferDynamicValues;
-        this.valueResolver = name -> {
-            if (context == null) {
-                return Optional.empty();
-            }
-            Optional<Object> value = context.getValue(name);
-            if (value.isPresent()) {
-                return value;
-            }
-            return hasElement(context, name) ? Optional.of(NULL_SENTINEL) : Optional.empty();
-        };
-        this.preferDynamicValues = true;
-        try {
-            return processTemplate(template, new HashMap<>(variables));
-        } finally {
-            this.valueResolver = previousResolver;
-            this.preferDynamicValues = previousPreferDynamic;
-        }
+    public synchronized String process(String template, UIContext context) {
+        return process(compile(template), context);
     }
 
-    private String processTemplate(String template, Map<String, Object> scope) {
-        String result = template;
-
-        // Process control structures first so false branches aren't expanded.
-        result = processEachBlocks(result, scope);
-        result = processIfBlocks(result, scope);
-
-        // Expand components with the current scope.
-        result = processComponents(result, scope);
-
-        // Process control structures again for blocks inside component templates.
-        result = processEachBlocks(result, scope);
-        result = processIfBlocks(result, scope);
-
-        // Then process variables.
-        result = processVariables(result, scope);
-
-        return result;
-    }
-
-    private String processVariables(String template, Map<String, Object> scope) {
-        Matcher matcher = VARIABLE_PATTERN.matcher(template);
-        StringBuilder result = new StringBuilder();
-
-        while (matcher.find()) {
-            String varName = matcher.group(1);
-            String filterOrDefault = matcher.group(2);
-
-            Object rawValue = resolveVariable(scope, varName);
-            String value = rawValue != null ? String.valueOf(rawValue) : "";
-
-            // Apply filter or use default value
-            if (filterOrDefault != null && !filterOrDefault.isEmpty()) {
-                if (filters.containsKey(filterOrDefault)) {
-                    // It's a filter
-                    value = filters.get(filterOrDefault).apply(value);
-                } else if (value.isEmpty()) {
-                    // It's a default value
-                    value = filterOrDefault;
-                }
-            }
-
-            HyUIPlugin.getLog().logFinest("Template variable: $" + varName + " = " + value);
-            matcher.appendReplacement(result, Matcher.quoteReplacement(value));
+    /**
+     * Compiles a template so it can be rendered repeatedly without re-scanning the source.
+     * Compiled templates are shared process-wide through the {@link TemplateCache}.
+     *
+     * @param template The template string
+     * @return The compiled template
+     */
+    public synchronized CompiledTemplate compile(String template) {
+        CompiledTemplate cached = lastCompiled;
+        if (cached != null && cached.getSource().equals(template)) {
+            return cached;
         }
-        matcher.appendTail(result);
-
-        return result.toString();
+        cached = TemplateCache.get(template);
+        lastCompiled = cached;
+        return cached;
     }
 
-    private String processEachBlocks(String template, Map<String, Object> scope) {
-        StringBuilder result = new StringBuilder();
-        int index = 0;
-
-        while (true) {
-            int start = template.indexOf(EACH_START, index);
-            if (start < 0) {
-                result.append(template.substring(index));
-                break;
-            }
-
-            result.append(template, index, start);
-
-            int startClose = template.indexOf("}}", start);
-            if (startClose < 0) {
-                result.append(template.substring(start));
-                break;
-            }
-
-            String listName = template.substring(start + EACH_START.length(), startClose).trim();
-            int end = findMatchingEnd(template, startClose + 2, EACH_START, EACH_END);
-            if (end < 0) {
-                result.append(template.substring(start));
-                break;
-            }
-
-            String inner = template.substring(startClose + 2, end);
-            Object listObj = resolveVariable(scope, listName);
-            Iterable<?> items = toIterable(listObj);
-
-            for (Object item : items) {
-                Map<String, Object> childScope = new HashMap<>(scope);
-                childScope.putAll(extractModelVariables(item));
-                childScope.put("item", item);
-                result.append(processTemplate(inner, childScope));
-            }
-
-            index = end + EACH_END.length();
+    /**
+     * Renders a compiled template against the current variables.
+     *
+     * @param template The compiled template
+     * @return Processed HTML string
+     */
+    public synchronized String process(CompiledTemplate template) {
+        StringBuilder out = RenderBuffers.acquire(template.getSource().length());
+        try {
+            render(template.getNodes(), TemplateScope.root(variables, activeTrace), out);
+            return out.toString();
+        } finally {
+            RenderBuffers.release(out);
         }
-
-        return result.toString();
     }
 
-    private String processIfBlocks(String template, Map<String, Object> scope) {
-        StringBuilder result = new StringBuilder();
-        int index = 0;
-
-        while (true) {
-            int start = template.indexOf(IF_START, index);
-            if (start < 0) {
-                result.append(template.substring(index));
-                break;
-            }
-
-            result.append(template, index, start);
-
-            int startClose = template.indexOf("}}", start);
-            if (startClose < 0) {
-                result.append(template.substring(start));
-                break;
-            }
-
-            String conditionName = template.substring(start + IF_START.length(), startClose).trim();
-            int end = findMatchingEnd(template, startClose + 2, IF_START, IF_END);
-            if (end < 0) {
-                result.append(template.substring(start));
-                break;
-            }
-
-            int elseIndex = findElseIndex(template, startClose + 2, end);
-            String trueBlock;
-            String falseBlock = "";
-
-            if (elseIndex >= 0) {
-                trueBlock = template.substring(startClose + 2, elseIndex);
-                falseBlock = template.substring(elseIndex + ELSE_TAG.length(), end);
-            } else {
-                trueBlock = template.substring(startClose + 2, end);
-            }
-
-            boolean conditionResult = evaluateCondition(conditionName, scope);
-            String chosen = conditionResult ? trueBlock : falseBlock;
-            result.append(processTemplate(chosen, scope));
+    /**
+     * Renders a compiled template using the provided UI context to resolve element IDs.
+     *
+     * @param template The compiled template
+     * @param context The UI context for runtime values
+     * @return Processed HTML string
+     */
+    public synchronized String process(CompiledTemplate template, UIContext context) {
+        return withContext(context, () -> process(template));
+    }
 
-            index = end + IF_END.length();
+    /**
+     * Renders a compiled template directly into the given output, without building an intermediate string
+     * when the output is a {@link StringBuilder}.
+     *
+     * @param template The compiled template
+     * @param out The output to append to
+     */
+    public synchronized void processTo(CompiledTemplate template, Appendable out) {
+        if (out instanceof StringBuilder builder) {
+            render(template.getNodes(), TemplateScope.root(variables, activeTrace), builder);
+            return;
+        }
+        StringBuilder buffer = RenderBuffers.acquire(template.getSource().length());
+        try {
+            render(template.getNodes(), TemplateScope.root(variables, activeTrace), buffer);
+            out.append(buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            RenderBuffers.release(buffer);
         }
-
-        return result.toString();
     }
 
-    private String processComponents(String template, Map<String, Object> scope) {
-        StringBuilder result = new StringBuilder();
-        int index = 0;
-
-        while (true) {
-            int start = template.indexOf("{{@", index);
-            if (start < 0) {
-                result.append(template.substring(index));
-                break;
-            }
-
-            result.append(template, index, start);
-            int cursor = start + 3;
-            int depth = 1;
-
-            while (cursor < template.length()) {
-                if (template.startsWith("{{", cursor)) {
-                    depth++;
-                    cursor += 2;
-                    continue;
-                }
-                if (template.startsWith("}}", cursor)) {
-                    depth--;
-                    if (depth == 0) {
-                        break;
-                    }
-                    cursor += 2;
-                    continue;
-                }
-                cursor++;
-            }
-
-            if (depth != 0) {
-                result.append(template.substring(start));
-                break;
-            }
-
-            String content = template.substring(start + 3, cursor).trim();
-            String componentName;
-            String paramsStr = null;
-            int colonIndex = content.indexOf(':');
-            if (colonIndex >= 0) {
-                componentName = content.substring(0, colonIndex).trim();
-                paramsStr = content.substring(colonIndex + 1).trim();
-            } else {
-                componentName = content.trim();
-            }
-
-            String componentHtml = components.get(componentName);
-            if (componentHtml == null) {
-                HyUIPlugin.getLog().logFinest("Unknown component: @" + componentName);
-                result.append("<!-- Unknown component: ").append(componentName).append(" -->");
-                index = cursor + 2;
-                continue;
-            }
-
-            if (paramsStr != null && !paramsStr.isEmpty()) {
-                Map<String, String> params = parseParams(paramsStr);
-                for (Map.Entry<String, String> param : params.entrySet()) {
-                    String rawValue = param.getValue();
-                    String value = processVariables(rawValue, scope);
-                    HyUIPlugin.getLog().logFinest("Component param @" + componentName + " " + param.getKey()
-                            + " raw=" + rawValue + " -> " + value + " scope=" + scope.keySet());
-                    componentHtml = componentHtml.replace("{{$" + param.getKey() + "}}", value);
-                }
-            }
+    /**
+     * Renders a compiled template into the given output, using the provided UI context to resolve element IDs.
+     *
+     * @param template The compiled template
+     * @param context The UI context for runtime values
+     * @param out The output to append to
+     */
+    public synchronized void processTo(CompiledTemplate template, UIContext context, Appendable out) {
+        withContext(context, () -> {
+            processTo(template, out);
+            return null;
+        });
+    }
 
-            HyUIPlugin.getLog().logFinest("Including component: @" + componentName);
-            result.append(componentHtml);
-            index = cursor + 2;
+    /**
+     * Renders a compiled template into the given output and records every input the render read into the trace,
+     * replacing whatever the trace held before.
+     *
+     * @param template The compiled template
+     * @param context The UI context for runtime values
+     * @param out The output to append to
+     * @param trace The trace to record into, or null to skip recording
+     */
+    public synchronized void processTo(CompiledTemplate template, UIContext context, Appendable out, RenderTrace trace) {
+        if (trace == null) {
+            processTo(template, context, out);
+            return;
+        }
+        RenderTrace previousTrace = this.activeTrace;
+        trace.begin(this, version, template);
+        this.activeTrace = trace;
+        try {
+            processTo(template, context, out);
+            trace.end();
+        } finally {
+            this.activeTrace = previousTrace;
         }
-
-        return result.toString();
     }
 
-    private Map<String, String> parseParams(String paramsStr) {
-        Map<String, String> params = new HashMap<>();
-        for (String param : paramsStr.split(",")) {
-            String[] parts = param.trim().split("=", 2);
-            if (parts.length == 2) {
-                params.put(parts[0].trim(), parts[1].trim());
-            }
-        }
-        return params;
+    /**
+     * Checks whether rendering the template again would read exactly the same inputs as the traced render,
+     * in which case its output would be identical and the render can be skipped.
+     *
+     * @param template The template that is about to be rendered
+     * @param trace A trace recorded by {@link #processTo(CompiledTemplate, UIContext, Appendable, RenderTrace)}
+     * @param context The UI context for runtime values
+     * @return true if no variable, element value or model property read by the traced render changed
+     */
+    public synchronized boolean isCurrent(String template, RenderTrace trace, UIContext context) {
+        return isCurrent(compile(template), trace, context);
     }
 
-    private boolean evaluateCondition(String rawCondition, Map<String, Object> scope) {
-        String condition = rawCondition != null ? rawCondition.trim() : "";
-        if (condition.isEmpty()) {
+    /**
+     * Checks whether rendering the compiled template again would read exactly the same inputs as the traced render.
+     *
+     * @param template The compiled template that is about to be rendered
+     * @param trace A trace recorded by {@link #processTo(CompiledTemplate, UIContext, Appendable, RenderTrace)}
+     * @param context The UI context for runtime values
+     * @return true if no variable, element value or model property read by the traced render changed
+     */
+    public synchronized boolean isCurrent(CompiledTemplate template, RenderTrace trace, UIContext context) {
+        if (trace == null || !trace.matches(this, version, template)) {
             return false;
         }
-
-        return evaluateLogical(condition, scope);
+        return withContext(context, () -> {
+            for (RenderTrace.Read read : trace.reads()) {
+                Object current = switch (read.kind()) {
+                    case VARIABLE -> variables.containsKey(read.name())
+                            ? variables.get(read.name()) : TemplateScope.MISSING;
+                    case DYNAMIC -> resolveDynamicValue(read.name()).orElse(TemplateScope.MISSING);
+                    case ITEM -> TemplateScope.lookupItem(read.target(), read.name());
+                    case PROPERTY -> getPropertyValue(read.target(), read.name());
+                };
+                if (!RenderTrace.same(read, current)) {
+                    return false;
+                }
+            }
+            return true;
+        });
     }
 
-    private boolean evaluateLogical(String condition, Map<String, Object> scope) {
-        for (String orPart : splitByOperator(condition, "||")) {
-            if (evaluateAnd(orPart, scope)) {
-                return true;
+    private <T> T withContext(UIContext context, Supplier<T> action) {
+        ValueResolver previousResolver = this.valueResolver;
+        boolean previousPreferDynamic = this.preferDynamicValues;
+        this.valueResolver = name -> {
+            if (context == null) {
+                return Optional.empty();
+            }
+            Optional<Object> value = context.getValue(name);
+            if (value.isPresent()) {
+                return value;
             }
+            return hasElement(context, name) ? Optional.of(NULL_SENTINEL) : Optional.empty();
+        };
+        this.preferDynamicValues = true;
+        try {
+            return action.get();
+        } finally {
+            this.valueResolver = previousResolver;
+            this.preferDynamicValues = previousPreferDynamic;
         }
-        return false;
     }
 
-    private boolean evaluateAnd(String condition, Map<String, Object> scope) {
-        for (String andPart : splitByOperator(condition, "&&")) {
-            if (!evaluateUnary(andPart, scope)) {
-                return false;
+    private void render(List<TemplateNode> nodes, TemplateScope scope, StringBuilder out) {
+        for (TemplateNode node : nodes) {
+            switch (node) {
+                case TemplateNode.Text text -> out.append(text.text());
+                case TemplateNode.Variable variable -> renderVariable(variable, scope, out);
+                case TemplateNode.Each each -> renderEach(each, scope, out);
+                case TemplateNode.If ifBlock -> {
+                    boolean conditionResult = ifBlock.condition().test(reference -> resolveOperand(reference, scope));
+                    render(conditionResult ? ifBlock.whenTrue() : ifBlock.whenFalse(), scope, out);
+                }
+                case TemplateNode.Component component -> renderComponent(component, scope, out);
             }
         }
-        return true;
     }
 
-    private boolean evaluateUnary(String condition, Map<String, Object> scope) {
-        String trimmed = condition.trim();
-        if (trimmed.startsWith("!")) {
-            return !evaluateUnary(trimmed.substring(1), scope);
-        }
+    private void renderVariable(TemplateNode.Variable variable, TemplateScope scope, StringBuilder out) {
+        Object rawValue = resolveVariable(scope, variable.name());
+        String value = rawValue != null ? String.valueOf(rawValue) : "";
+        value = applyPipe(variable, value);
 
-        return evaluateComparison(trimmed, scope);
+        HyUIPlugin.getLog().logFinest("Template variable: $%s = %s", variable.name(), value);
+        out.append(value);
     }
 
-    private boolean evaluateComparison(String condition, Map<String, Object> scope) {
-        Matcher containsMatcher = Pattern.compile("(.+?)\\s+contains\\s+(.+)").matcher(condition);
-        if (containsMatcher.matches()) {
-            Object left = resolveOperand(containsMatcher.group(1).trim(), scope);
-            Object right = resolveOperand(containsMatcher.group(2).trim(), scope);
-            return containsValue(left, right);
+    private String applyPipe(TemplateNode.Variable variable, String value) {
+        String pipe = variable.pipe();
+        if (pipe == null || pipe.isEmpty()) {
+            return value;
         }
 
-        Matcher matcher = Pattern.compile("(.+?)(==|!=|>=|<=|>|<)(.+)").matcher(condition);
-        if (matcher.matches()) {
-            Object left = resolveOperand(matcher.group(1).trim(), scope);
-            Object right = resolveOperand(matcher.group(3).trim(), scope);
-            String operator = matcher.group(2);
-            return compareValues(left, right, operator);
+        // A pipe is a chain only when every segment but the last is a known filter,
+        // so defaults that happen to contain '|' keep working.
+        List<String> chain = variable.chain();
+        boolean isChain = chain.size() > 1 && !filters.containsKey(pipe);
+        for (int i = 0; isChain && i < chain.size() - 1; i++) {
+            isChain = filters.containsKey(chain.get(i));
         }
-
-        Object value = resolveOperand(condition, scope);
-        return isTruthy(value);
-    }
-
-    private Object resolveOperand(String token, Map<String, Object> scope) {
-        if (token == null) {
-            return null;
+        if (!isChain) {
+            return applyFilterOrDefault(pipe, value);
         }
-        String trimmed = token.trim();
-        if (trimmed.isEmpty()) {
-            return "";
+        for (String segment : chain) {
+            value = applyFilterOrDefault(segment, value);
         }
+        return value;
+    }
 
-        if ((trimmed.startsWith("\"") && trimmed.endsWith("\""))
-                || (trimmed.startsWith("'") && trimmed.endsWith("'"))) {
-            return trimmed.substring(1, trimmed.length() - 1);
+    private String applyFilterOrDefault(String filterOrDefault, String value) {
+        Function<String, String> filter = filters.get(filterOrDefault);
+        if (filter != null) {
+            return filter.apply(value);
         }
-
-        if ("null".equalsIgnoreCase(trimmed)) {
-            return null;
+        if (value.isEmpty()) {
+            return filterOrDefault;
         }
+        return value;
+    }
 
-        if ("true".equalsIgnoreCase(trimmed) || "false".equalsIgnoreCase(trimmed)) {
-            return Boolean.parseBoolean(trimmed);
-        }
+    private void renderEach(TemplateNode.Each each, TemplateScope scope, StringBuilder out) {
+        Object listObj = resolveVariable(scope, each.listName());
+        Iterable<?> items = toIterable(listObj);
 
-        try {
-            if (trimmed.contains(".")) {
-                return Double.parseDouble(trimmed);
+        int index = 0;
+        for (Object item : items) {
+            int start = out.length();
+            TemplateScope itemScope = scope.forItem(item, index++);
+            render(each.body(), itemScope, out);
+            if (each.key() != null) {
+                Object key = resolveVariable(itemScope, each.key());
+                if (key != null) {
+                    markKeys(out, start, String.valueOf(key));
+                }
             }
-            return Long.parseLong(trimmed);
-        } catch (NumberFormatException ignored) {
-            // Not a number literal.
         }
-
-        if (hasVariable(scope, trimmed)) {
-            return resolveVariable(scope, trimmed);
-        }
-
-        return trimmed;
     }
 
-    private boolean compareValues(Object left, Object right, String operator) {
-        if (left == null || right == null) {
-            if ("==".equals(operator)) {
-                return left == right;
+    /**
+     * Adds a {@code data-hyui-key} attribute to every top-level element rendered for one keyed item, so the
+     * reconciler can match the element to the same item across renders. Additional top-level elements of the
+     * same item get the key suffixed with {@code #1}, {@code #2} and so on.
+     */
+    private void markKeys(StringBuilder out, int start, String key) {
+        String escapedKey = escapeAttribute(key);
+        int depth = 0;
+        int ordinal = 0;
+        int i = start;
+        while (i < out.length()) {
+            char c = out.charAt(i);
+            if (c != '<' || i + 1 >= out.length()) {
+                i++;
+                continue;
             }
-            if ("!=".equals(operator)) {
-                return left != right;
+            char next = out.charAt(i + 1);
+            if (next == '!') {
+                int end = out.indexOf(">", i);
+                i = end < 0 ? out.length() : end + 1;
+            } else if (next == '/') {
+                depth--;
+                int end = out.indexOf(">", i);
+                i = end < 0 ? out.length() : end + 1;
+            } else if (Character.isLetter(next)) {
+                int nameEnd = i + 1;
+                while (nameEnd < out.length() && (Character.isLetterOrDigit(out.charAt(nameEnd))
+                        || out.charAt(nameEnd) == '-')) {
+                    nameEnd++;
+                }
+                String tagName = out.substring(i + 1, nameEnd).toLowerCase(Locale.ROOT);
+                if (depth == 0) {
+                    String attribute = " data-hyui-key=\"" + escapedKey + (ordinal > 0 ? "#" + ordinal : "") + "\"";
+                    out.insert(nameEnd, attribute);
+                    nameEnd += attribute.length();
+                    ordinal++;
+                }
+                int end = tagEnd(out, nameEnd);
+                boolean selfClosing = end > 0 && out.charAt(end - 1) == '/';
+                if (!selfClosing && !VOID_TAGS.contains(tagName)) {
+                    depth++;
+                }
+                i = end < 0 ? out.length() : end + 1;
+            } else {
+                i++;
             }
-            return false;
-        }
-
-        Double leftNum = toNumber(left);
-        Double rightNum = toNumber(right);
-        if (leftNum != null && rightNum != null) {
-            return switch (operator) {
-                case "==" -> Double.compare(leftNum, rightNum) == 0;
-                case "!=" -> Double.compare(leftNum, rightNum) != 0;
-                case ">" -> leftNum > rightNum;
-                case "<" -> leftNum < rightNum;
-                case ">=" -> leftNum >= rightNum;
-                case "<=" -> leftNum <= rightNum;
-                default -> false;
-            };
-        }
-
-        if (left instanceof Boolean || right instanceof Boolean) {
-            boolean leftVal = left instanceof Boolean ? (Boolean) left : Boolean.parseBoolean(left.toString());
-            boolean rightVal = right instanceof Boolean ? (Boolean) right : Boolean.parseBoolean(right.toString());
-            return switch (operator) {
-                case "==" -> leftVal == rightVal;
-                case "!=" -> leftVal != rightVal;
-                default -> false;
-            };
         }
-
-        String leftStr = String.valueOf(left);
-        String rightStr = String.valueOf(right);
-        return switch (operator) {
-            case "==" -> leftStr.equals(rightStr);
-            case "!=" -> !leftStr.equals(rightStr);
-            default -> false;
-        };
     }
 
-    private Double toNumber(Object value) {
-        if (value instanceof Number number) {
-            return number.doubleValue();
-        }
-        try {
-            return Double.parseDouble(value.toString());
-        } catch (NumberFormatException e) {
-            return null;
+    private int tagEnd(StringBuilder out, int from) {
+        char quote = 0;
+        for (int i = from; i < out.length(); i++) {
+            char c = out.charAt(i);
+            if (quote != 0) {
+                if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '"' || c == '\'') {
+                quote = c;
+            } else if (c == '>') {
+                return i;
+            }
         }
+        return -1;
     }
 
-    private boolean containsValue(Object left, Object right) {
-        if (left == null || right == null) {
-            return false;
-        }
+    private String escapeAttribute(String value) {
+        return value.replace("&", "&amp;").replace("\"", "&quot;").replace("<", "&lt;").replace(">", "&gt;");
+    }
 
-        if (left instanceof CharSequence seq) {
-            return seq.toString().contains(String.valueOf(right));
+    private void renderComponent(TemplateNode.Component component, TemplateScope scope, StringBuilder out) {
+        String componentName = component.name();
+        CompiledComponent definition = components.get(componentName);
+        if (definition == null) {
+            HyUIPlugin.getLog().logFinest("Unknown component: @%s", componentName);
+            out.append("<!-- Unknown component: ").append(componentName).append(" -->");
+            return;
         }
-
-        if (left instanceof Map<?, ?> map) {
-            return map.containsKey(right);
+        if (renderingComponents.contains(componentName)) {
+            HyUIPlugin.getLog().logFinest("Recursive component: @%s", componentName);
+            out.append("<!-- Recursive component: ").append(componentName).append(" -->");
+            return;
         }
 
-        if (left instanceof Iterable<?> iterable) {
-            for (Object item : iterable) {
-                if (item == null && right == null) {
-                    return true;
+        TemplateScope componentScope = scope;
+        if (!component.params().isEmpty()) {
+            if (definition.isOpen()) {
+                componentScope = scope.child();
+                for (TemplateNode.Param param : component.params()) {
+                    componentScope.bind(param.key(), renderParam(componentName, param, scope));
                 }
-                if (item != null && item.equals(right)) {
-                    return true;
+            } else {
+                Map<String, Integer> slots = definition.getSlots();
+                Object[] values = definition.newSlotValues();
+                for (TemplateNode.Param param : component.params()) {
+                    Integer slot = slots.get(param.key());
+                    // Parameters the body never reads are not rendered.
+                    if (slot != null) {
+                        values[slot] = renderParam(componentName, param, scope);
+                    }
                 }
+                componentScope = scope.withSlots(slots, values);
             }
-            return false;
         }
 
-        if (left.getClass().isArray()) {
-            int length = Array.getLength(left);
-            for (int i = 0; i < length; i++) {
-                Object item = Array.get(left, i);
-                if (item == null && right == null) {
-                    return true;
-                }
-                if (item != null && item.equals(right)) {
-                    return true;
-                }
-            }
-            return false;
+        HyUIPlugin.getLog().logFinest("Including component: @%s", componentName);
+        renderingComponents.add(componentName);
+        try {
+            render(definition.getTemplate().getNodes(), componentScope, out);
+        } finally {
+            renderingComponents.remove(componentName);
         }
-
-        return left.toString().contains(String.valueOf(right));
     }
 
-    private List<String> splitByOperator(String input, String operator) {
-        List<String> parts = new java.util.ArrayList<>();
-        boolean inSingle = false;
-        boolean inDouble = false;
-        int start = 0;
-
-        for (int i = 0; i < input.length(); i++) {
-            char c = input.charAt(i);
-            if (c == '"' && !inSingle) {
-                inDouble = !inDouble;
-                continue;
-            }
-            if (c == '\'' && !inDouble) {
-                inSingle = !inSingle;
-                continue;
-            }
-
-            if (!inSingle && !inDouble && input.startsWith(operator, i)) {
-                parts.add(input.substring(start, i));
-                start = i + operator.length();
-                i += operator.length() - 1;
-            }
+    private String renderParam(String componentName, TemplateNode.Param param, TemplateScope scope) {
+        String value = param.constant();
+        if (value == null) {
+            StringBuilder rendered = new StringBuilder();
+            render(param.value(), scope, rendered);
+            value = rendered.toString();
         }
+        HyUIPlugin.getLog().logFinest("Component param @%s %s raw=%s -> %s",
+                componentName, param.key(), param.rawValue(), value);
+        return value;
+    }
 
-        parts.add(input.substring(start));
-        return parts;
+    private Object resolveOperand(String reference, TemplateScope scope) {
+        if (hasVariable(scope, reference)) {
+            return resolveVariable(scope, reference);
+        }
+        return reference;
     }
 
-    private boolean hasVariable(Map<String, Object> scope, String name) {
+    private boolean hasVariable(TemplateScope scope, String name) {
         if (name == null || name.isBlank()) {
             return false;
         }
 
-        if (scope.containsKey(name)) {
+        if (scope.contains(name)) {
             return true;
         }
 
@@ -642,13 +586,13 @@ public class TemplateProcessor {
         int dotIndex = name.indexOf('.');
         if (dotIndex > 0) {
             String root = name.substring(0, dotIndex);
-            return scope.containsKey(root);
+            return scope.contains(root);
         }
 
         return false;
     }
 
-    private Object resolveVariable(Map<String, Object> scope, String name) {
+    private Object resolveVariable(TemplateScope scope, String name) {
         if (name == null || name.isBlank()) {
             return null;
         }
@@ -660,8 +604,9 @@ public class TemplateProcessor {
             }
         }
 
-        if (scope.containsKey(name)) {
-            return scope.get(name);
+        Object scoped = scope.lookup(name);
+        if (scoped != TemplateScope.MISSING) {
+            return scoped;
         }
 
         Optional<Object> resolved = resolveDynamicValue(name);
@@ -675,17 +620,20 @@ public class TemplateProcessor {
             return null;
         }
 
-        String first = path[0];
-        if (!scope.containsKey(first)) {
+        Object current = scope.lookup(path[0]);
+        if (current == TemplateScope.MISSING) {
             return null;
         }
 
-        Object current = scope.get(first);
         for (int i = 1; i < path.length; i++) {
             if (current == null) {
                 return null;
             }
-            current = getPropertyValue(current, path[i]);
+            Object target = current;
+            current = getPropertyValue(target, path[i]);
+            if (activeTrace != null) {
+                activeTrace.recordProperty(target, path[i], current);
+            }
         }
 
         return current;
@@ -695,7 +643,11 @@ public class TemplateProcessor {
         if (valueResolver == null) {
             return Optional.empty();
         }
-        return valueResolver.resolve(name);
+        Optional<Object> resolved = valueResolver.resolve(name);
+        if (activeTrace != null) {
+            activeTrace.recordDynamic(name, resolved.orElse(TemplateScope.MISSING));
+        }
+        return resolved;
     }
 
     @SuppressWarnings({"rawtypes", "unchecked"})
@@ -710,6 +662,9 @@ public class TemplateProcessor {
         if (value instanceof Iterable<?> iterable) {
             return iterable;
         }
+        if (value instanceof Object[] array) {
+            return Arrays.asList(array);
+        }
         if (value.getClass().isArray()) {
             int length = Array.getLength(value);
             List<Object> list = new java.util.ArrayList<>(length);
@@ -721,179 +676,6 @@ public class TemplateProcessor {
         return List.of();
     }
 
-    private int findMatchingEnd(String template, int searchFrom, String startTag, String endTag) {
-        int depth = 1;
-        int index = searchFrom;
-
-        while (index < template.length()) {
-            int nextStart = template.indexOf(startTag, index);
-            int nextEnd = template.indexOf(endTag, index);
-
-            if (nextEnd < 0) {
-                return -1;
-            }
-
-            if (nextStart != -1 && nextStart < nextEnd) {
-                depth++;
-                index = nextStart + startTag.length();
-            } else {
-                depth--;
-                if (depth == 0) {
-                    return nextEnd;
-                }
-                index = nextEnd + endTag.length();
-            }
-        }
-
-        return -1;
-    }
-
-    private int findElseIndex(String template, int searchFrom, int endIndex) {
-        int depth = 1;
-        int index = searchFrom;
-
-        while (index < endIndex) {
-            int nextStart = template.indexOf(IF_START, index);
-            int nextEnd = template.indexOf(IF_END, index);
-            int nextElse = template.indexOf(ELSE_TAG, index);
-
-            int next = minPositive(nextStart, nextEnd, nextElse);
-            if (next < 0 || next >= endIndex) {
-                return -1;
-            }
-
-            if (next == nextStart) {
-                depth++;
-                index = nextStart + IF_START.length();
-            } else if (next == nextEnd) {
-                depth--;
-                if (depth == 0) {
-                    return -1;
-                }
-                index = nextEnd + IF_END.length();
-            } else {
-                if (depth == 1) {
-                    return nextElse;
-                }
-                index = nextElse + ELSE_TAG.length();
-            }
-        }
-
-        return -1;
-    }
-
-    private int minPositive(int... values) {
-        int min = Integer.MAX_VALUE;
-        for (int value : values) {
-            if (value >= 0 && value < min) {
-                min = value;
-            }
-        }
-        return min == Integer.MAX_VALUE ? -1 : min;
-    }
-
-    private Map<String, Object> extractModelVariables(Object item) {
-        Map<String, Object> values = new HashMap<>();
-        if (item == null) {
-            return values;
-        }
-
-        if (item instanceof Map<?, ?> map) {
-            for (Map.Entry<?, ?> entry : map.entrySet()) {
-                if (entry.getKey() instanceof String key) {
-                    values.put(key, entry.getValue());
-                }
-            }
-            return values;
-        }
-
-        for (Field field : item.getClass().getFields()) {
-            if (values.containsKey(field.getName())) {
-                continue;
-            }
-            try {
-                if (!field.canAccess(item)) {
-                    field.setAccessible(true);
-                }
-                values.put(field.getName(), field.get(item));
-            } catch (IllegalAccessException ignored) {
-                // Skip inaccessible fields.
-            }
-        }
-
-        for (Method method : item.getClass().getMethods()) {
-            if (method.getParameterCount() != 0) {
-                continue;
-            }
-            String name = method.getName();
-            if (name.equals("getClass")) {
-                continue;
-            }
-
-            String propName = null;
-            if (name.startsWith("get") && name.length() > 3) {
-                propName = decapitalize(name.substring(3));
-            } else if (name.startsWith("is") && name.length() > 2) {
-                propName = decapitalize(name.substring(2));
-            }
-
-            if (propName != null && !values.containsKey(propName)) {
-                try {
-                    if (!method.canAccess(item)) {
-                        method.setAccessible(true);
-                    }
-                    values.put(propName, method.invoke(item));
-                } catch (Exception ignored) {
-                    // Skip getters that throw.
-                }
-            }
-        }
-
-        for (Field field : item.getClass().getDeclaredFields()) {
-            if (field.isSynthetic() || values.containsKey(field.getName())) {
-                continue;
-            }
-            try {
-                if (!field.canAccess(item)) {
-                    field.setAccessible(true);
-                }
-                values.put(field.getName(), field.get(item));
-            } catch (IllegalAccessException ignored) {
-                // Skip inaccessible fields.
-            }
-        }
-
-        for (Method method : item.getClass().getDeclaredMethods()) {
-            if (method.getParameterCount() != 0) {
-                continue;
-            }
-            String name = method.getName();
-            if (name.equals("getClass")) {
-                continue;
-            }
-
-            String propName = null;
-            if (name.startsWith("get") && name.length() > 3) {
-                propName = decapitalize(name.substring(3));
-            } else if (name.startsWith("is") && name.length() > 2) {
-                propName = decapitalize(name.substring(2));
-            }
-
-            if (propName != null && !values.containsKey(propName)) {
-                try {
-                    if (!method.canAccess(item)) {
-                        method.setAccessible(true);
-                    }
-                    values.put(propName, method.invoke(item));
-                } catch (Exception ignored) {
-                    // Skip getters that throw.
-                }
-            }
-        }
-
-        return values;
-    }
-
     private Object getPropertyValue(Object target, String name) {
         if (target == null || name == null || name.isBlank()) {
             return null;
@@ -919,56 +701,8 @@ public class TemplateProcessor {
             return null;
         }
 
-        try {
-            Field field = target.getClass().getField(name);
-            if (!field.canAccess(target)) {
-                field.setAccessible(true);
-            }
-            return field.get(target);
-        } catch (NoSuchFieldException | IllegalAccessException ignored) {
-            // Fall back to getters.
-        }
-
-        String suffix = name.substring(0, 1).toUpperCase() + name.substring(1);
-        for (String prefix : new String[] {"get", "is"}) {
-            try {
-                Method method = target.getClass().getMethod(prefix + suffix);
-                if (method.getParameterCount() == 0) {
-                    if (!method.canAccess(target)) {
-                        method.setAccessible(true);
-                    }
-                    return method.invoke(target);
-                }
-            } catch (Exception ignored) {
-                // Try next getter.
-            }
-        }
-
-        try {
-            Field field = target.getClass().getDeclaredField(name);
-            if (!field.canAccess(target)) {
-                field.setAccessible(true);
-            }
-            return field.get(target);
-        } catch (NoSuchFieldException | IllegalAccessException ignored) {
-            // Ignore.
-        }
-
-        for (String prefix : new String[] {"get", "is"}) {
-            try {
-                Method method = target.getClass().getDeclaredMethod(prefix + suffix);
-                if (method.getParameterCount() == 0) {
-                    if (!method.canAccess(target)) {
-                        method.setAccessible(true);
-                    }
-                    return method.invoke(target);
-                }
-            } catch (Exception ignored) {
-                // Ignore.
-            }
-        }
-
-        return null;
+        PropertyAccessors.Accessor accessor = PropertyAccessors.find(target.getClass(), name);
+        return accessor != null ? accessor.get(target) : null;
     }
 
     private Integer parseIndex(String value) {
@@ -987,39 +721,6 @@ public class TemplateProcessor {
         }
     }
 
-    private String decapitalize(String value) {
-        if (value == null || value.isEmpty()) {
-            return value;
-        }
-        if (value.length() > 1 && Character.isUpperCase(value.charAt(0)) && Character.isUpperCase(value.charAt(1))) {
-            return value;
-        }
-        return Character.toLowerCase(value.charAt(0)) + value.substring(1);
-    }
-
-    private boolean isTruthy(Object value) {
-        if (value == null) {
-            return false;
-        }
-        if (value instanceof Boolean bool) {
-            return bool;
-        }
-        if (value instanceof Number number) {
-            return number.doubleValue() != 0;
-        }
-        if (value instanceof CharSequence seq) {
-            String text = seq.toString().trim();
-            return !text.isEmpty() && !"false".equalsIgnoreCase(text);
-        }
-        if (value instanceof Iterable<?> iterable) {
-            return iterable.iterator().hasNext();
-        }
-        if (value.getClass().isArray()) {
-            return Array.getLength(value) > 0;
-        }
-        return true;
-    }
-
     // Default filters
     private String capitalize(String value) {
         if (value == null || value.isEmpty()) return value;
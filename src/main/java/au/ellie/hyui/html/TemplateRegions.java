@@ -0,0 +1,289 @@
+package au.ellie.hyui.html;
+
+import au.ellie.hyui.HyUIPlugin;
+import au.ellie.hyui.builders.UIElementBuilder;
+import au.ellie.hyui.events.UIContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Incrementally re-renders a template, one region at a time.
+ * <p>
+ * The template is split into regions: each top-level element, each run of text and blocks between elements,
+ * and recursively the content of wrapper {@code <div>}s, page overlays and containers. Every region keeps
+ * its own {@link RenderTrace} and the number of top-level builders it produced. On refresh, only regions
+ * whose inputs changed are rendered, parsed and merged into the matching slice of the current element tree;
+ * every other builder is kept as-is. The first refresh, and any refresh after the tree was replaced from
+ * outside, renders every region.
+ * </p>
+ */
+public final class TemplateRegions {
+
+    /**
+     * Merges freshly parsed builders into the current ones, and exposes the live children of a group.
+     */
+    public interface Reconciler {
+        List<UIElementBuilder<?>> merge(List<UIElementBuilder<?>> current, List<UIElementBuilder<?>> updated);
+
+        List<UIElementBuilder<?>> children(UIElementBuilder<?> group);
+    }
+
+    private abstract static sealed class Slot permits LeafSlot, GroupSlot {
+        // The part of the enclosing container the builders are placed in, or null.
+        final String parent;
+
+        Slot(String parent) {
+            this.parent = parent;
+        }
+
+        void place(List<UIElementBuilder<?>> builders) {
+            if (parent != null) {
+                for (UIElementBuilder<?> builder : builders) {
+                    builder.inside(parent);
+                }
+            }
+        }
+    }
+
+    private static final class LeafSlot extends Slot {
+        private final CompiledTemplate template;
+        private final RenderTrace trace = new RenderTrace();
+        private int size = -1;
+
+        private LeafSlot(CompiledTemplate template, String parent) {
+            super(parent);
+            this.template = template;
+        }
+    }
+
+    private static final class GroupSlot extends Slot {
+        private final String startTag;
+        private final List<Slot> slots;
+
+        private GroupSlot(String startTag, List<Slot> slots, String parent) {
+            super(parent);
+            this.startTag = startTag;
+            this.slots = slots;
+        }
+    }
+
+    private final TemplateProcessor processor;
+    private final CompiledTemplate template;
+    private final HtmlParser parser = new HtmlParser();
+    private List<Slot> slots;
+    private boolean split;
+    private int rendered;
+
+    /**
+     * @param processor    The processor the template is rendered with.
+     * @param templateHtml The template source.
+     */
+    public TemplateRegions(TemplateProcessor processor, String templateHtml) {
+        this.processor = processor;
+        this.template = processor.compile(templateHtml);
+        useLayout(template.getLayout());
+    }
+
+    /**
+     * Re-renders the regions whose inputs changed and merges them into the current elements.
+     *
+     * @param current    The current top-level elements, as returned by the previous refresh.
+     * @param context    The UI context for runtime values.
+     * @param reconciler Merges updated builders into the current tree.
+     * @return The new top-level elements, or null if no region changed.
+     */
+    public List<UIElementBuilder<?>> refresh(List<UIElementBuilder<?>> current, UIContext context,
+                                             Reconciler reconciler) {
+        rendered = 0;
+        if (matchesShape(slots, current, reconciler)) {
+            List<UIElementBuilder<?>> refreshed = refreshSlots(slots, current, context, reconciler);
+            if (refreshed == null) {
+                return null;
+            }
+            if (split) {
+                HyUIPlugin.getLog().logFinest("Template regions: re-rendered %s region(s)", rendered);
+                return refreshed;
+            }
+            // A region started producing document-wide markup, so the layout collapsed to a single leaf.
+        }
+
+        List<UIElementBuilder<?>> fresh = renderSlots(slots, context, reconciler);
+        if (fresh == null) {
+            useLayout(TemplateLayout.single(template));
+            fresh = renderSlots(slots, context, reconciler);
+        }
+        HyUIPlugin.getLog().logFinest("Template regions: full render of %s region(s)", rendered);
+        return reconciler.merge(current, fresh);
+    }
+
+    /**
+     * Forgets every recorded render, so the next refresh renders all regions. Call this when the element
+     * tree was replaced by something other than {@link #refresh}.
+     */
+    public void invalidate() {
+        invalidate(slots);
+    }
+
+    private void useLayout(TemplateLayout layout) {
+        this.slots = toSlots(layout.parts());
+        this.split = layout.isSplit();
+    }
+
+    private static List<Slot> toSlots(List<TemplateLayout.Part> parts) {
+        List<Slot> result = new ArrayList<>(parts.size());
+        for (TemplateLayout.Part part : parts) {
+            switch (part) {
+                case TemplateLayout.Leaf leaf -> result.add(new LeafSlot(leaf.template(), leaf.parent()));
+                case TemplateLayout.Group group ->
+                        result.add(new GroupSlot(group.startTag(), toSlots(group.parts()), group.parent()));
+            }
+        }
+        return result;
+    }
+
+    private static void invalidate(List<Slot> slots) {
+        for (Slot slot : slots) {
+            switch (slot) {
+                case LeafSlot leaf -> {
+                    leaf.trace.invalidate();
+                    leaf.size = -1;
+                }
+                case GroupSlot group -> invalidate(group.slots);
+            }
+        }
+    }
+
+    /**
+     * @return true if every region size is known and the element tree has the shape they describe.
+     */
+    private static boolean matchesShape(List<Slot> slots, List<UIElementBuilder<?>> elements, Reconciler reconciler) {
+        int offset = 0;
+        for (Slot slot : slots) {
+            switch (slot) {
+                case LeafSlot leaf -> {
+                    if (leaf.size < 0) {
+                        return false;
+                    }
+                    offset += leaf.size;
+                }
+                case GroupSlot group -> {
+                    if (offset >= elements.size()
+                            || !matchesShape(group.slots, reconciler.children(elements.get(offset)), reconciler)) {
+                        return false;
+                    }
+                    offset++;
+                }
+            }
+        }
+        return offset == elements.size();
+    }
+
+    /**
+     * Refreshes changed regions in place.
+     *
+     * @return The updated list, or null if nothing changed.
+     */
+    private List<UIElementBuilder<?>> refreshSlots(List<Slot> slots, List<UIElementBuilder<?>> current,
+                                                   UIContext context, Reconciler reconciler) {
+        List<UIElementBuilder<?>> result = new ArrayList<>(current.size());
+        boolean changed = false;
+        int offset = 0;
+        for (Slot slot : slots) {
+            switch (slot) {
+                case LeafSlot leaf -> {
+                    List<UIElementBuilder<?>> slice = current.subList(offset, offset + leaf.size);
+                    offset += leaf.size;
+                    if (processor.isCurrent(leaf.template, leaf.trace, context)) {
+                        result.addAll(slice);
+                        continue;
+                    }
+                    List<UIElementBuilder<?>> updated = renderLeaf(leaf, context);
+                    if (updated == null) {
+                        return result;
+                    }
+                    List<UIElementBuilder<?>> merged = reconciler.merge(new ArrayList<>(slice), updated);
+                    leaf.place(merged);
+                    leaf.size = merged.size();
+                    result.addAll(merged);
+                    changed = true;
+                }
+                case GroupSlot group -> {
+                    UIElementBuilder<?> builder = current.get(offset++);
+                    List<UIElementBuilder<?>> children = reconciler.children(builder);
+                    List<UIElementBuilder<?>> updated = refreshSlots(group.slots, children, context, reconciler);
+                    if (!split) {
+                        return result;
+                    }
+                    if (updated != null) {
+                        children.clear();
+                        children.addAll(updated);
+                        changed = true;
+                    }
+                    result.add(builder);
+                }
+            }
+        }
+        return changed ? result : null;
+    }
+
+    /**
+     * Renders every region from scratch.
+     *
+     * @return The parsed builders, or null if the layout had to collapse to a single leaf.
+     */
+    private List<UIElementBuilder<?>> renderSlots(List<Slot> slots, UIContext context, Reconciler reconciler) {
+        List<UIElementBuilder<?>> result = new ArrayList<>();
+        for (Slot slot : slots) {
+            switch (slot) {
+                case LeafSlot leaf -> {
+                    List<UIElementBuilder<?>> parsed = renderLeaf(leaf, context);
+                    if (parsed == null) {
+                        return null;
+                    }
+                    leaf.place(parsed);
+                    leaf.size = parsed.size();
+                    result.addAll(parsed);
+                }
+                case GroupSlot group -> {
+                    List<UIElementBuilder<?>> wrapper = parser.parse(group.startTag + "</div>");
+                    if (wrapper.size() != 1) {
+                        useLayout(TemplateLayout.single(template));
+                        return null;
+                    }
+                    List<UIElementBuilder<?>> children = renderSlots(group.slots, context, reconciler);
+                    if (children == null) {
+                        return null;
+                    }
+                    UIElementBuilder<?> builder = wrapper.get(0);
+                    group.place(wrapper);
+                    reconciler.children(builder).addAll(children);
+                    result.add(builder);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Renders and parses one leaf, recording its trace.
+     *
+     * @return The parsed builders, or null if the leaf produced document-wide markup in a split layout,
+     * in which case the layout is switched to a single leaf.
+     */
+    private List<UIElementBuilder<?>> renderLeaf(LeafSlot leaf, UIContext context) {
+        StringBuilder out = RenderBuffers.acquire(leaf.template.getSource().length());
+        try {
+            processor.processTo(leaf.template, context, out, leaf.trace);
+            if (split && TemplateLayout.DOCUMENT_WIDE.matcher(out).find()) {
+                HyUIPlugin.getLog().logFinest("Template regions: document-wide markup rendered, disabling regions");
+                useLayout(TemplateLayout.single(template));
+                return null;
+            }
+            rendered++;
+            return parser.parse(out.toString());
+        } finally {
+            RenderBuffers.release(out);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package au.ellie.hyui.html;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A parent-linked variable scope used while rendering a template.
+ * <p>
+ * The root scope reads straight through to the processor's variables. Child scopes only hold their own
+ * bindings (component parameters, by name or by slot, or the current {@code {{#each}}} item, its index and its properties)
+ * and fall back to their parent, so nothing is copied when entering a block. The loop {@code index} is only
+ * used when no scope in the chain defines {@code index} itself.
+ * </p>
+ */
+final class TemplateScope {
+    /**
+     * Returned by {@link #lookup(String)} when no scope in the chain defines the name.
+     */
+    static final Object MISSING = new Object();
+
+    private static final Object NO_ITEM = new Object();
+
+    private final TemplateScope parent;
+    private final Object item;
+    private final int index;
+    private final RenderTrace trace;
+    private Map<String, Object> bindings;
+    private Map<String, Integer> slots;
+    private Object[] slotValues;
+
+    private TemplateScope(TemplateScope parent, Object item, int index, Map<String, Object> bindings,
+                          RenderTrace trace) {
+        this.parent = parent;
+        this.item = item;
+        this.index = index;
+        this.bindings = bindings;
+        this.trace = trace;
+    }
+
+    /**
+     * @param variables The processor variables, read without copying.
+     * @param trace     Records root and item reads, or null.
+     * @return The root scope.
+     */
+    static TemplateScope root(Map<String, Object> variables, RenderTrace trace) {
+        return new TemplateScope(null, NO_ITEM, -1, variables, trace);
+    }
+
+    /**
+     * @return An empty child scope, for binding component parameters.
+     */
+    TemplateScope child() {
+        return new TemplateScope(this, NO_ITEM, -1, null, trace);
+    }
+
+    /**
+     * Creates a child scope whose bindings live in fixed slots, for binding the parameters of a compiled
+     * component. Slots holding {@link #MISSING} are unbound and fall through to the parent.
+     *
+     * @param slots  The slot of each name.
+     * @param values The value of each slot.
+     * @return The child scope.
+     */
+    TemplateScope withSlots(Map<String, Integer> slots, Object[] values) {
+        TemplateScope scope = new TemplateScope(this, NO_ITEM, -1, null, trace);
+        scope.slots = slots;
+        scope.slotValues = values;
+        return scope;
+    }
+
+    /**
+     * Creates the scope for one {@code {{#each}}} item. The item is bound as {@code item}, its properties
+     * are resolved lazily as variables, and its zero-based position is available as {@code index} unless
+     * an outer scope or the item itself defines {@code index}.
+     *
+     * @param item  The current item.
+     * @param index The item position.
+     * @return The item scope.
+     */
+    TemplateScope forItem(Object item, int index) {
+        return new TemplateScope(this, item, index, null, trace);
+    }
+
+    /**
+     * Binds a name in this scope only.
+     */
+    void bind(String name, Object value) {
+        if (bindings == null) {
+            bindings = new HashMap<>(4);
+        }
+        bindings.put(name, value);
+    }
+
+    /**
+     * @return true if any scope in the chain defines the name.
+     */
+    boolean contains(String name) {
+        return lookup(name) != MISSING;
+    }
+
+    /**
+     * Resolves a name through the chain. Within an item scope, {@code item} and the item's properties
+     * take precedence over the scope's own bindings. The index of the innermost item scope is only returned
+     * when nothing in the chain defines {@code index}, so existing variables of that name keep working.
+     *
+     * @param name The variable name.
+     * @return The value, which may be null, or {@link #MISSING} if undefined.
+     */
+    Object lookup(String name) {
+        Object loopIndex = MISSING;
+        for (TemplateScope scope = this; scope != null; scope = scope.parent) {
+            if (scope.item != NO_ITEM) {
+                Object value = lookupItem(scope.item, name);
+                if (trace != null && !"item".equals(name)) {
+                    trace.recordItem(scope.item, name, value);
+                }
+                if (value != MISSING) {
+                    return value;
+                }
+                if (loopIndex == MISSING && "index".equals(name)) {
+                    loopIndex = scope.index;
+                }
+            }
+            if (scope.slots != null) {
+                Integer slot = scope.slots.get(name);
+                if (slot != null && scope.slotValues[slot] != MISSING) {
+                    return scope.slotValues[slot];
+                }
+                continue;
+            }
+            Map<String, Object> own = scope.bindings;
+            if (own != null) {
+                Object value = own.get(name);
+                if (value == null && !own.containsKey(name)) {
+                    value = MISSING;
+                }
+                if (trace != null && scope.parent == null) {
+                    trace.recordVariable(name, value);
+                }
+                if (value != MISSING) {
+                    return value;
+                }
+            }
+        }
+        return loopIndex;
+    }
+
+    /**
+     * Reads the named property of an {@code {{#each}}} item, as a lookup in its scope would.
+     *
+     * @return The value, or {@link #MISSING} if the item has no such property.
+     */
+    static Object lookupItem(Object item, String name) {
+        if ("item".equals(name)) {
+            return item;
+        }
+        if (item instanceof Map<?, ?> map) {
+            Object value = map.get(name);
+            return value != null || map.containsKey(name) ? value : MISSING;
+        }
+        if (item != null) {
+            PropertyAccessors.Accessor accessor = PropertyAccessors.find(item.getClass(), name);
+            if (accessor != null) {
+                return accessor.get(item);
+            }
+        }
+        return MISSING;
+    }
+}
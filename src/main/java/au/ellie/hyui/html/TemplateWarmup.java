@@ -0,0 +1,200 @@
+package au.ellie.hyui.html;
+
+import au.ellie.hyui.HyUIPlugin;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Loads, compiles and parses the HYUIML resources under {@code Common/UI/Custom} ahead of time, so the first
+ * player to open a page does not pay for it.
+ * <p>
+ * Files are read into {@link TemplateCache} under the same path {@code loadHtml} uses, compiled, and parsed
+ * once without variables, which also compiles their stylesheets. The work runs on a small bounded pool, the
+ * time of every file is logged at info level and failures are logged with their cause. Warm-up is opt-in with
+ * the {@code HYUI_WARMUP=true} environment variable.
+ * </p>
+ */
+public final class TemplateWarmup {
+    public static final boolean ENABLED = "true".equals(System.getenv("HYUI_WARMUP"));
+
+    private static final String RESOURCE_ROOT = "Common/UI/Custom/";
+    private static final int MAX_THREADS = 4;
+
+    private TemplateWarmup() {}
+
+    /**
+     * The outcome of warming one file.
+     *
+     * @param resourcePath The resource path, as used by {@code loadHtml}.
+     * @param readNanos    Time spent reading the file.
+     * @param compileNanos Time spent compiling the template.
+     * @param parseNanos   Time spent parsing it into builders.
+     * @param error        The failure, or null if the file warmed up.
+     */
+    public record Result(String resourcePath, long readNanos, long compileNanos, long parseNanos, Throwable error) {
+        public boolean failed() {
+            return error != null;
+        }
+    }
+
+    /**
+     * Warms every HYUIML resource in the code source of the given class, and throws if any of them failed,
+     * so broken pages are reported at boot instead of when a player first opens them.
+     *
+     * @param owner A class from the jar or directory holding the resources.
+     * @return The result of every file.
+     * @throws IllegalStateException if a file could not be warmed.
+     */
+    public static List<Result> warmUp(Class<?> owner) {
+        List<String> resources = discover(owner);
+        if (resources.isEmpty()) {
+            HyUIPlugin.getLog().logFinest("Template warm-up: no HYUIML resources found");
+            return List.of();
+        }
+
+        long start = System.nanoTime();
+        List<Result> results = new ArrayList<>(resources.size());
+        ExecutorService pool = Executors.newFixedThreadPool(
+                Math.min(resources.size(), Math.min(MAX_THREADS, Runtime.getRuntime().availableProcessors())),
+                new WarmupThreadFactory());
+        try {
+            List<Future<Result>> futures = new ArrayList<>(resources.size());
+            for (String resourcePath : resources) {
+                futures.add(pool.submit(() -> warm(owner, resourcePath)));
+            }
+            for (Future<Result> future : futures) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Template warm-up interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Template warm-up failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+
+        List<String> failures = new ArrayList<>();
+        for (Result result : results) {
+            if (result.failed()) {
+                failures.add(result.resourcePath() + ": " + result.error());
+                HyUIPlugin.getLog().logSevere("Template warm-up failed for " + result.resourcePath(), result.error());
+            } else {
+                HyUIPlugin.getLog().logInfo("Template warm-up: %s read %s, compiled %s, parsed %s",
+                        result.resourcePath(), millis(result.readNanos()), millis(result.compileNanos()),
+                        millis(result.parseNanos()));
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        HyUIPlugin.getLog().logInfo("Template warm-up: %d file(s) in %s", results.size(), millis(elapsed));
+        if (!failures.isEmpty()) {
+            throw new IllegalStateException("Template warm-up failed for " + failures.size() + " file(s): "
+                    + String.join("; ", failures));
+        }
+        return results;
+    }
+
+    private static Result warm(Class<?> owner, String resourcePath) {
+        long read = 0;
+        long compile = 0;
+        try {
+            long start = System.nanoTime();
+            String html = TemplateCache.getResource(resourcePath, () -> readResource(owner, resourcePath));
+            read = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            TemplateCache.get(html);
+            compile = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            new HtmlParser().parse(html);
+            return new Result(resourcePath, read, compile, System.nanoTime() - start, null);
+        } catch (RuntimeException e) {
+            return new Result(resourcePath, read, compile, 0, e);
+        }
+    }
+
+    private static String readResource(Class<?> owner, String resourcePath) {
+        try (InputStream inputStream = owner.getResourceAsStream(resourcePath)) {
+            if (inputStream == null) {
+                throw new IllegalArgumentException("Resource not found: " + resourcePath);
+            }
+            return new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to load HTML from resource: " + resourcePath, e);
+        }
+    }
+
+    /**
+     * Lists the {@code .html} resources under {@code Common/UI/Custom} in the jar or directory the class was
+     * loaded from, as absolute resource paths.
+     */
+    private static List<String> discover(Class<?> owner) {
+        CodeSource codeSource = owner.getProtectionDomain().getCodeSource();
+        if (codeSource == null) {
+            return List.of();
+        }
+        List<String> resources = new ArrayList<>();
+        try {
+            URL location = codeSource.getLocation();
+            Path path = Path.of(location.toURI());
+            if (Files.isDirectory(path)) {
+                Path root = path.resolve(RESOURCE_ROOT);
+                if (Files.isDirectory(root)) {
+                    try (Stream<Path> files = Files.walk(root)) {
+                        files.filter(file -> file.toString().endsWith(".html"))
+                                .forEach(file -> resources.add("/" + path.relativize(file).toString().replace('\\', '/')));
+                    }
+                }
+            } else {
+                try (ZipFile jar = new ZipFile(path.toFile())) {
+                    Enumeration<? extends ZipEntry> entries = jar.entries();
+                    while (entries.hasMoreElements()) {
+                        String name = entries.nextElement().getName();
+                        if (name.startsWith(RESOURCE_ROOT) && name.endsWith(".html")) {
+                            resources.add("/" + name);
+                        }
+                    }
+                }
+            }
+        } catch (IOException | URISyntaxException | IllegalArgumentException e) {
+            throw new IllegalStateException("Template warm-up could not list resources", e);
+        }
+        resources.sort(null);
+        return resources;
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.1f ms", nanos / 1_000_000.0);
+    }
+
+    private static final class WarmupThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "HyUI-Warmup-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -15,8 +15,16 @@ import org.jsoup.nodes.Element;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 public class ButtonHandler implements TagHandler {
+    private static final Set<String> TAG_NAMES = Set.of("button", "input");
+
+    @Override
+    public Set<String> getTagNames() {
+        return TAG_NAMES;
+    }
+
     @Override
     public boolean canHandle(Element element) {
         String tag = element.tagName().toLowerCase();
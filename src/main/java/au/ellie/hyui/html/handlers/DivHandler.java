@@ -8,8 +8,16 @@ import org.jsoup.nodes.Node;
 import org.jsoup.nodes.TextNode;
 
 import java.util.List;
+import java.util.Set;
 
 public class DivHandler implements TagHandler {
+    private static final Set<String> TAG_NAMES = Set.of("div");
+
+    @Override
+    public Set<String> getTagNames() {
+        return TAG_NAMES;
+    }
+
     @Override
     public boolean canHandle(Element element) {
         return element.tagName().equalsIgnoreCase("div");
@@ -8,7 +8,16 @@ import au.ellie.hyui.utils.HyvatarUtils;
 import au.ellie.hyui.utils.ParseUtils;
 import org.jsoup.nodes.Element;
 
+import java.util.Set;
+
 public class HyvatarHandler implements TagHandler {
+    private static final Set<String> TAG_NAMES = Set.of("hyvatar");
+
+    @Override
+    public Set<String> getTagNames() {
+        return TAG_NAMES;
+    }
+
     @Override
     public boolean canHandle(Element element) {
         return element.tagName().equalsIgnoreCase("hyvatar");
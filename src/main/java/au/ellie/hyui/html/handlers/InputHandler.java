@@ -6,7 +6,16 @@ import au.ellie.hyui.html.TagHandler;
 import au.ellie.hyui.utils.ParseUtils;
 import org.jsoup.nodes.Element;
 
+import java.util.Set;
+
 public class InputHandler implements TagHandler {
+    private static final Set<String> TAG_NAMES = Set.of("input");
+
+    @Override
+    public Set<String> getTagNames() {
+        return TAG_NAMES;
+    }
+
     @Override
     public boolean canHandle(Element element) {
         return element.tagName().equalsIgnoreCase("input");
@@ -10,7 +10,22 @@ import com.hypixel.hytale.server.core.ui.PatchStyle;
 import com.hypixel.hytale.server.core.ui.Value;
 import org.jsoup.nodes.Element;
 
+import java.util.Set;
+
 public class ItemGridHandler implements TagHandler {
+    private static final Set<String> TAG_NAMES = Set.of("div");
+    private static final Set<String> CLASS_NAMES = Set.of("item-grid");
+
+    @Override
+    public Set<String> getTagNames() {
+        return TAG_NAMES;
+    }
+
+    @Override
+    public Set<String> getClassNames() {
+        return CLASS_NAMES;
+    }
+
     @Override
     public boolean canHandle(Element element) {
         return element.tagName().equalsIgnoreCase("div") && element.hasClass("item-grid");
@@ -6,7 +6,22 @@ import au.ellie.hyui.html.HtmlParser;
 import au.ellie.hyui.html.TagHandler;
 import org.jsoup.nodes.Element;
 
+import java.util.Set;
+
 public class ItemSlotHandler implements TagHandler {
+    private static final Set<String> TAG_NAMES = Set.of("span");
+    private static final Set<String> CLASS_NAMES = Set.of("item-slot");
+
+    @Override
+    public Set<String> getTagNames() {
+        return TAG_NAMES;
+    }
+
+    @Override
+    public Set<String> getClassNames() {
+        return CLASS_NAMES;
+    }
+
     @Override
     public boolean canHandle(Element element) {
         return element.tagName().equalsIgnoreCase("span") && element.hasClass("item-slot");
@@ -6,7 +6,16 @@ import au.ellie.hyui.html.HtmlParser;
 import au.ellie.hyui.html.TagHandler;
 import org.jsoup.nodes.Element;
 
+import java.util.Set;
+
 public class LabelHandler implements TagHandler {
+    private static final Set<String> TAG_NAMES = Set.of("label", "p");
+
+    @Override
+    public Set<String> getTagNames() {
+        return TAG_NAMES;
+    }
+
     @Override
     public boolean canHandle(Element element) {
         String tag = element.tagName().toLowerCase();
@@ -7,7 +7,16 @@ import au.ellie.hyui.html.TagHandler;
 import au.ellie.hyui.utils.ParseUtils;
 import org.jsoup.nodes.Element;
 
+import java.util.Set;
+
 public class SpriteHandler implements TagHandler {
+    private static final Set<String> TAG_NAMES = Set.of("sprite");
+
+    @Override
+    public Set<String> getTagNames() {
+        return TAG_NAMES;
+    }
+
     @Override
     public boolean canHandle(Element element) {
         return element.tagName().equalsIgnoreCase("sprite");
@@ -9,7 +9,22 @@ import org.jsoup.nodes.Element;
 import org.jsoup.nodes.Node;
 import org.jsoup.nodes.TextNode;
 
+import java.util.Set;
+
 public class TabContentHandler implements TagHandler {
+    private static final Set<String> TAG_NAMES = Set.of("div");
+    private static final Set<String> CLASS_NAMES = Set.of("tab-content");
+
+    @Override
+    public Set<String> getTagNames() {
+        return TAG_NAMES;
+    }
+
+    @Override
+    public Set<String> getClassNames() {
+        return CLASS_NAMES;
+    }
+
     @Override
     public boolean canHandle(Element element) {
         return element.tagName().equalsIgnoreCase("div") && element.hasClass("tab-content");
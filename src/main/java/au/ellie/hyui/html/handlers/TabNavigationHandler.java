@@ -9,6 +9,7 @@ import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
 
 import java.util.List;
+import java.util.Set;
 
 /**
  * Handler for tab navigation elements in HYUIML.
@@ -39,6 +40,19 @@ import java.util.List;
  */
 public class TabNavigationHandler implements TagHandler {
 
+    private static final Set<String> TAG_NAMES = Set.of("nav", "div");
+    private static final Set<String> CLASS_NAMES = Set.of("tabs", "tab-navigation");
+
+    @Override
+    public Set<String> getTagNames() {
+        return TAG_NAMES;
+    }
+
+    @Override
+    public Set<String> getClassNames() {
+        return CLASS_NAMES;
+    }
+
     @Override
     public boolean canHandle(Element element) {
         String tagName = element.tagName().toLowerCase();
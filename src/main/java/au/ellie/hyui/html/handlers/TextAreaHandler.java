@@ -10,8 +10,16 @@ import au.ellie.hyui.utils.ParseUtils;
 import org.jsoup.nodes.Element;
 
 import java.util.Optional;
+import java.util.Set;
 
 public class TextAreaHandler implements TagHandler {
+    private static final Set<String> TAG_NAMES = Set.of("textarea");
+
+    @Override
+    public Set<String> getTagNames() {
+        return TAG_NAMES;
+    }
+
     @Override
     public boolean canHandle(Element element) {
         return element.tagName().equalsIgnoreCase("textarea");
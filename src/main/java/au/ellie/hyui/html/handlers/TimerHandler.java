@@ -7,6 +7,8 @@ import au.ellie.hyui.html.TagHandler;
 import au.ellie.hyui.utils.ParseUtils;
 import org.jsoup.nodes.Element;
 
+import java.util.Set;
+
 /**
  * Handler for timer elements in HYUIML.
  *
@@ -23,6 +25,13 @@ import org.jsoup.nodes.Element;
  */
 public class TimerHandler implements TagHandler {
 
+    private static final Set<String> TAG_NAMES = Set.of("timer", "span");
+
+    @Override
+    public Set<String> getTagNames() {
+        return TAG_NAMES;
+    }
+
     @Override
     public boolean canHandle(Element element) {
         return element.tagName().equalsIgnoreCase("timer") ||
@@ -0,0 +1,140 @@
+package au.ellie.hyui.utils;
+
+import com.hypixel.hytale.protocol.packets.interface_.CustomUICommand;
+import com.hypixel.hytale.server.core.ui.builder.UICommandBuilder;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Merges the HUD updates sent to a player during a batch into one update, so a player with several HUDs
+ * refreshing together receives one packet instead of one per HUD.
+ * <p>
+ * A batch is opened on the world thread with {@link #runBatched(Runnable)}. While it is open, updates passed
+ * to {@link #send} are queued per player in the order they were made, and each player's queue is sent as
+ * one update when the batch ends. Commands are merged after any {@code #MultipleHUD #id} prefixing, so
+ * every command keeps its selector. Outside a batch, updates are sent straight away.
+ * </p>
+ * Code that sends HUD updates some other way must call {@link #flush(UUID)} first to keep the order.
+ */
+public final class HudUpdateBatcher {
+    private static final ThreadLocal<Map<UUID, Batch>> OPEN = new ThreadLocal<>();
+
+    private static final AtomicLong packetsSent = new AtomicLong();
+    private static final AtomicLong updatesMerged = new AtomicLong();
+
+    private HudUpdateBatcher() {}
+
+    /**
+     * Runs the work with a batch open, then sends one update per player. Nested calls join the open batch.
+     *
+     * @param work The work that sends HUD updates, run on the world thread.
+     */
+    public static void runBatched(Runnable work) {
+        if (OPEN.get() != null) {
+            work.run();
+            return;
+        }
+        Map<UUID, Batch> batches = new LinkedHashMap<>();
+        OPEN.set(batches);
+        try {
+            work.run();
+        } finally {
+            OPEN.remove();
+            for (Batch batch : batches.values()) {
+                batch.send();
+            }
+        }
+    }
+
+    /**
+     * Sends a HUD update, or queues it if a batch is open on this thread.
+     *
+     * @param player   The player the update is for.
+     * @param commands The commands of the update.
+     * @param sender   Sends an update to the player, the first sender of a batch sends the merged update.
+     */
+    public static void send(@Nonnull UUID player, @Nonnull UICommandBuilder commands,
+                            @Nonnull Consumer<UICommandBuilder> sender) {
+        Map<UUID, Batch> batches = OPEN.get();
+        if (batches == null) {
+            packetsSent.incrementAndGet();
+            sender.accept(commands);
+            return;
+        }
+        batches.computeIfAbsent(player, uuid -> new Batch(sender)).add(commands.getCommands());
+    }
+
+    /**
+     * Sends the updates queued for a player, if any, without closing the batch.
+     *
+     * @param player The player.
+     */
+    public static void flush(@Nonnull UUID player) {
+        Map<UUID, Batch> batches = OPEN.get();
+        if (batches != null) {
+            Batch batch = batches.remove(player);
+            if (batch != null) {
+                batch.send();
+            }
+        }
+    }
+
+    /**
+     * @return HUD update packets sent through this class.
+     */
+    public static long getPacketsSent() {
+        return packetsSent.get();
+    }
+
+    /**
+     * @return Updates that were merged into another update instead of being sent as their own packet.
+     */
+    public static long getUpdatesMerged() {
+        return updatesMerged.get();
+    }
+
+    private static final class Batch {
+        private final Consumer<UICommandBuilder> sender;
+        private final MergedCommands commands = new MergedCommands();
+        private int updates;
+
+        private Batch(Consumer<UICommandBuilder> sender) {
+            this.sender = sender;
+        }
+
+        void add(CustomUICommand[] commands) {
+            Collections.addAll(this.commands.merged, commands);
+            updates++;
+        }
+
+        void send() {
+            if (commands.merged.isEmpty()) {
+                return;
+            }
+            packetsSent.incrementAndGet();
+            updatesMerged.addAndGet(updates - 1);
+            sender.accept(commands);
+        }
+    }
+
+    /**
+     * A builder holding already built commands. CustomUIHud sends what {@link #getCommands()} returns.
+     */
+    private static final class MergedCommands extends UICommandBuilder {
+        private final List<CustomUICommand> merged = new ArrayList<>();
+
+        @Override
+        @Nonnull
+        public CustomUICommand[] getCommands() {
+            return merged.toArray(new CustomUICommand[0]);
+        }
+    }
+}
@@ -64,7 +64,7 @@ public class MultiHudWrapper {
         }
         var existingPlugin = PluginManager.get().getPlugin(new PluginIdentifier("Buuz135", "MultipleHUD"));
         if (existingPlugin != null) {
-            HyUIPlugin.getLog().logFinest("MultipleHUD plugin found: " + existingPlugin.getManifest().getVersion().toString());
+            HyUIPlugin.getLog().logFinest("MultipleHUD plugin found: %s", existingPlugin.getManifest().getVersion());
             multipleHudClass = existingPlugin.getClass();
             mhudSemver = existingPlugin.getManifest().getVersion();
         }
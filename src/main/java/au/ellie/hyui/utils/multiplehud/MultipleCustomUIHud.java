@@ -1,5 +1,6 @@
 package au.ellie.hyui.utils.multiplehud;
 
+import au.ellie.hyui.utils.HudUpdateBatcher;
 import com.hypixel.hytale.protocol.packets.interface_.CustomUICommand;
 import com.hypixel.hytale.protocol.packets.interface_.CustomUICommandType;
 import com.hypixel.hytale.server.core.entity.entities.player.hud.CustomUIHud;
@@ -159,6 +160,7 @@ public class MultipleCustomUIHud extends CustomUIHud {
 
     @Override
     public void show() {
+        HudUpdateBatcher.flush(getPlayerRef().getUuid());
         UICommandBuilder commandBuilder = new UICommandBuilder();
         this.build(commandBuilder);
         for (String identifier : customHuds.keySet()) {
@@ -179,7 +181,7 @@ public class MultipleCustomUIHud extends CustomUIHud {
         }
 
         buildHud(commandBuilder, normalizedId, hud, existingHud != null);
-        update(false, commandBuilder);
+        HudUpdateBatcher.send(getPlayerRef().getUuid(), commandBuilder, commands -> update(false, commands));
     }
 
     public void remove (@NonNullDecl String identifier) {
@@ -190,6 +192,6 @@ public class MultipleCustomUIHud extends CustomUIHud {
         customHuds.remove(identifier);
         UICommandBuilder commandBuilder = new UICommandBuilder();
         commandBuilder.remove("#MultipleHUD #" + normalizedId);
-        update(false, commandBuilder);
+        HudUpdateBatcher.send(getPlayerRef().getUuid(), commandBuilder, commands -> update(false, commands));
     }
 }